@@ -2,8 +2,10 @@ package com.bedoyarama.busnau;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BusnauApiApplication {
 
   public static void main(String[] args) {
@@ -0,0 +1,93 @@
+package com.bedoyarama.busnau.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to observed latency with a gradient algorithm. A slow moving
+ * average of request latency approximates the no-load latency; whenever recent latency rises above
+ * it the limit shrinks in proportion ({@code gradient = longRtt / shortRtt}), and while latency
+ * stays flat it grows by roughly {@code sqrt(limit)} per update. Growth only happens while at
+ * least half the limit is in use, so an idle node does not drift to the maximum.
+ */
+final class AdaptiveConcurrencyLimit {
+
+  private static final double SHORT_RTT_WEIGHT = 0.1;
+  private static final double LONG_RTT_WEIGHT = 1.0 / 600;
+  private static final double SMOOTHING = 0.2;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final AtomicInteger inflight = new AtomicInteger();
+
+  private volatile double limit;
+  private double shortRtt;
+  private double longRtt;
+
+  AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+  }
+
+  /**
+   * Takes a slot if fewer than {@code limit + headroom} requests are in flight. Priority requests
+   * pass a positive headroom so they are still admitted once ordinary ones are shed.
+   */
+  boolean tryAcquire(int headroom) {
+    int allowed = (int) limit + headroom;
+    while (true) {
+      int current = inflight.get();
+      if (current >= allowed) {
+        return false;
+      }
+      if (inflight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** Releases a slot taken by {@link #tryAcquire} and feeds the request's latency back. */
+  void release(long rttNanos) {
+    int inflightBefore = inflight.getAndDecrement();
+    update(rttNanos, inflightBefore);
+  }
+
+  /**
+   * Releases a slot without a latency sample, for requests whose duration says nothing about
+   * saturation, such as streaming responses that last as long as the client keeps reading.
+   */
+  void release() {
+    inflight.decrementAndGet();
+  }
+
+  private synchronized void update(long rttNanos, int inflightBefore) {
+    if (longRtt == 0) {
+      shortRtt = rttNanos;
+      longRtt = rttNanos;
+      return;
+    }
+    shortRtt += (rttNanos - shortRtt) * SHORT_RTT_WEIGHT;
+    longRtt += (rttNanos - longRtt) * LONG_RTT_WEIGHT;
+    if (longRtt > 2 * shortRtt) {
+      // Latency recovered well below the baseline; let the baseline catch up faster
+      longRtt *= 0.95;
+    }
+
+    double current = limit;
+    if (inflightBefore < current / 2) {
+      return;
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, longRtt / shortRtt));
+    double target = current * gradient + Math.sqrt(current);
+    double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+    limit = Math.max(minLimit, Math.min(maxLimit, next));
+  }
+
+  int limit() {
+    return (int) limit;
+  }
+
+  int inflight() {
+    return inflight.get();
+  }
+}
@@ -5,6 +5,8 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,9 +23,23 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
   private final UserDetailsService userDetailsService;
 
-  public AuthTokenFilter(JwtUtils jwtUtils, UserDetailsService userDetailsService) {
+  private final VerifiedTokenCache verifiedTokenCache;
+
+  private final UserVersionCache userVersionCache;
+
+  private final boolean stateless;
+
+  public AuthTokenFilter(
+      JwtUtils jwtUtils,
+      UserDetailsService userDetailsService,
+      VerifiedTokenCache verifiedTokenCache,
+      UserVersionCache userVersionCache,
+      @Value("${jwt.stateless:true}") boolean stateless) {
     this.jwtUtils = jwtUtils;
     this.userDetailsService = userDetailsService;
+    this.verifiedTokenCache = verifiedTokenCache;
+    this.userVersionCache = userVersionCache;
+    this.stateless = stateless;
   }
 
   @Override
@@ -32,10 +48,8 @@ public class AuthTokenFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      UserDetails userDetails = jwt != null ? resolvePrincipal(jwt) : null;
+      if (userDetails != null) {
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails, null, userDetails.getAuthorities());
@@ -50,6 +64,39 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  private UserDetails resolvePrincipal(String jwt) {
+    UserDetails cached = verifiedTokenCache.get(jwt);
+    if (cached != null && isCurrent(cached)) {
+      return cached;
+    }
+    Optional<JwtClaims> claims = jwtUtils.verifyJwtToken(jwt);
+    if (claims.isEmpty() || !claims.get().isAccessToken()) {
+      // Refresh tokens are only good for /api/auth/refresh, never as bearer credentials
+      return null;
+    }
+    UserDetails userDetails;
+    if (stateless && claims.get().hasPrincipal()) {
+      userDetails = claims.get().toPrincipal();
+      if (!isCurrent(userDetails)) {
+        // Role changed or sessions were revoked after the token was issued
+        return null;
+      }
+    } else {
+      userDetails = userDetailsService.loadUserByUsername(claims.get().username());
+      if (userDetails instanceof UserPrincipal principal
+          && !userVersionCache.isCurrent(principal, claims.get().tokenEpoch())) {
+        return null;
+      }
+    }
+    verifiedTokenCache.put(jwt, userDetails, claims.get().expiresAt());
+    return userDetails;
+  }
+
+  private boolean isCurrent(UserDetails userDetails) {
+    return !(userDetails instanceof UserPrincipal principal)
+        || userVersionCache.isCurrent(principal);
+  }
+
   private String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
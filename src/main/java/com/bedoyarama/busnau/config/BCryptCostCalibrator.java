@@ -0,0 +1,35 @@
+package com.bedoyarama.busnau.config;
+
+import java.time.Duration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks the BCrypt work factor for this host: the highest strength whose estimated hash time stays
+ * within the target latency. Each strength step doubles the work, so one measurement at the
+ * minimum strength is enough to extrapolate.
+ */
+public final class BCryptCostCalibrator {
+
+  private static final String SAMPLE = "calibration-sample-password";
+
+  private BCryptCostCalibrator() {}
+
+  public static int calibrate(Duration targetLatency, int minStrength, int maxStrength) {
+    BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+    encoder.encode(SAMPLE); // warm up
+    long nanos = Math.min(time(encoder), time(encoder));
+    long targetNanos = targetLatency.toNanos();
+    int strength = minStrength;
+    while (strength < maxStrength && nanos * 2 <= targetNanos) {
+      strength++;
+      nanos *= 2;
+    }
+    return strength;
+  }
+
+  private static long time(BCryptPasswordEncoder encoder) {
+    long start = System.nanoTime();
+    encoder.encode(SAMPLE);
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,133 @@
+package com.bedoyarama.busnau.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Runs the (deliberately expensive) hashing and verification of a delegate encoder on a dedicated
+ * pool of {@code concurrency} threads, so a login storm cannot occupy every servlet thread. Work
+ * that cannot be queued, or that waited longer than {@code queueTimeout} to start, fails with
+ * {@link PasswordHashingUnavailableException}. Callers wait at most {@code queueTimeout} plus
+ * {@code maxHashTime} in total, whether or not a worker has picked their work up.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+  private final PasswordEncoder delegate;
+  private final ThreadPoolExecutor executor;
+  private final long queueTimeoutNanos;
+  private final long maxHashTimeNanos;
+  private final Timer queueWait;
+  private final Counter rejected;
+
+  public BoundedPasswordEncoder(
+      PasswordEncoder delegate,
+      int concurrency,
+      int queueCapacity,
+      Duration queueTimeout,
+      Duration maxHashTime,
+      MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.queueTimeoutNanos = queueTimeout.toNanos();
+    this.maxHashTimeNanos = maxHashTime.toNanos();
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            concurrency,
+            concurrency,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.queueWait =
+        Timer.builder("password.hashing.queue.wait")
+            .description("Time password hashing work waited for a worker")
+            .register(meterRegistry);
+    this.rejected =
+        Counter.builder("password.hashing.rejected")
+            .description("Password hashing work rejected because the pool was saturated")
+            .register(meterRegistry);
+    Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size())
+        .register(meterRegistry);
+    Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return run(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return run(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private <T> T run(Callable<T> work) {
+    long enqueuedAt = System.nanoTime();
+    Future<T> future;
+    try {
+      future =
+          executor.submit(
+              () -> {
+                long waited = System.nanoTime() - enqueuedAt;
+                queueWait.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > queueTimeoutNanos) {
+                  rejected.increment();
+                  throw new PasswordHashingUnavailableException(
+                      "Password hashing queue timeout exceeded");
+                }
+                return work.call();
+              });
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new PasswordHashingUnavailableException("Password hashing queue is full");
+    }
+    try {
+      long remaining = enqueuedAt + queueTimeoutNanos + maxHashTimeNanos - System.nanoTime();
+      return future.get(remaining, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      rejected.increment();
+      throw new PasswordHashingUnavailableException("Password hashing timed out");
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new PasswordHashingUnavailableException("Interrupted while waiting for hashing");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.bedoyarama.busnau.config;
+
+import com.bedoyarama.busnau.service.UserChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+/**
+ * {@link UserDetailsService} that keeps recently loaded users in a bounded, TTL-evicting cache.
+ * Entries are dropped as soon as a {@link UserChangedEvent} is published for the user.
+ *
+ * <p>Callers always receive a fresh copy: the authentication manager erases the credentials of
+ * the principal it is handed, which must not affect the cached one.
+ */
+public class CachingUserDetailsService implements UserDetailsService {
+
+  private final UserDetailsService delegate;
+  private final Cache<String, UserPrincipal> cache;
+  private final Timer loadTimer;
+
+  public CachingUserDetailsService(
+      UserDetailsService delegate, long maximumSize, Duration ttl, MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.cache =
+        Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().build();
+    this.loadTimer =
+        Timer.builder("user.details.load")
+            .description("Time spent loading users on a cache miss")
+            .register(meterRegistry);
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.details");
+    Gauge.builder("user.details.cache.hit.ratio", cache, c -> c.stats().hitRate())
+        .register(meterRegistry);
+  }
+
+  @Override
+  public UserDetails loadUserByUsername(String username) {
+    UserPrincipal cached = cache.get(username, this::load);
+    return new UserPrincipal(
+        cached.getId(),
+        cached.getUsername(),
+        cached.getPassword(),
+        cached.getRole(),
+        cached.getRoleVersion(),
+        cached.getTokenEpoch());
+  }
+
+  private UserPrincipal load(String username) {
+    long start = System.nanoTime();
+    try {
+      return (UserPrincipal) delegate.loadUserByUsername(username);
+    } finally {
+      loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @EventListener
+  public void onUserChanged(UserChangedEvent event) {
+    if (event.username() != null) {
+      cache.invalidate(event.username());
+    }
+    // Also catches a renamed user still cached under the old username
+    cache.asMap().values().removeIf(principal -> principal.getId().equals(event.userId()));
+  }
+}
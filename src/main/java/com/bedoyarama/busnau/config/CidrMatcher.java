@@ -0,0 +1,261 @@
+package com.bedoyarama.busnau.config;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Set of IPv4 and IPv6 CIDR blocks compiled into a binary prefix trie. Matching parses the address
+ * straight from the character sequence and walks at most one trie level per address bit, so it
+ * costs the same however many blocks are configured and does not allocate for IPv4. IPv4-mapped
+ * IPv6 addresses are matched against the IPv4 blocks.
+ */
+final class CidrMatcher {
+
+  private final BitTrie ipv4 = new BitTrie();
+  private final BitTrie ipv6 = new BitTrie();
+
+  /**
+   * @param cidrs blocks such as {@code 10.0.0.0/8} or {@code fd00::/8}; a bare address is a block
+   *     of one
+   * @throws IllegalArgumentException for a malformed block
+   */
+  CidrMatcher(Collection<String> cidrs) {
+    long[] address = new long[2];
+    for (String cidr : cidrs) {
+      String block = cidr.trim();
+      if (block.isEmpty()) {
+        continue;
+      }
+      int slash = block.indexOf('/');
+      int end = slash < 0 ? block.length() : slash;
+      boolean v6 = block.indexOf(':') >= 0;
+      if (v6 ? !parseIpv6(block, 0, end, address) : !parseIpv4Into(block, 0, end, address)) {
+        throw new IllegalArgumentException("Invalid CIDR block: " + cidr);
+      }
+      int maxBits = v6 ? 128 : 32;
+      int prefix;
+      try {
+        prefix = slash < 0 ? maxBits : Integer.parseInt(block.substring(slash + 1));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid CIDR block: " + cidr, e);
+      }
+      if (prefix < 0 || prefix > maxBits) {
+        throw new IllegalArgumentException("Invalid CIDR prefix length: " + cidr);
+      }
+      (v6 ? ipv6 : ipv4).add(address[0], address[1], prefix);
+    }
+  }
+
+  boolean matches(CharSequence address) {
+    return address != null && matches(address, 0, address.length());
+  }
+
+  /** Whether {@code address[from, to)} is a valid address inside one of the blocks. */
+  boolean matches(CharSequence address, int from, int to) {
+    if (!isIpv6(address, from, to)) {
+      long v4 = parseIpv4(address, from, to);
+      return v4 >= 0 && ipv4.matches(v4 << 32, 0, 32);
+    }
+    long[] v6 = new long[2];
+    if (!parseIpv6(address, from, to, v6)) {
+      return false;
+    }
+    if (v6[0] == 0 && (v6[1] >>> 32) == 0xffffL) {
+      return ipv4.matches(v6[1] << 32, 0, 32);
+    }
+    return ipv6.matches(v6[0], v6[1], 128);
+  }
+
+  /** Whether {@code address[from, to)} is a syntactically valid IPv4 or IPv6 address. */
+  static boolean isAddress(CharSequence address, int from, int to) {
+    return isIpv6(address, from, to)
+        ? parseIpv6(address, from, to, new long[2])
+        : parseIpv4(address, from, to) >= 0;
+  }
+
+  private static boolean isIpv6(CharSequence s, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (s.charAt(i) == ':') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean parseIpv4Into(CharSequence s, int from, int to, long[] out) {
+    long v4 = parseIpv4(s, from, to);
+    out[0] = v4 << 32;
+    out[1] = 0;
+    return v4 >= 0;
+  }
+
+  /** Parses dotted-quad notation; returns the address as an unsigned value, or -1. */
+  static long parseIpv4(CharSequence s, int from, int to) {
+    long result = 0;
+    int octets = 0;
+    int value = -1;
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      if (c >= '0' && c <= '9') {
+        value = (value < 0 ? 0 : value * 10) + (c - '0');
+        if (value > 255) {
+          return -1;
+        }
+      } else if (c == '.' && value >= 0 && octets < 3) {
+        result = (result << 8) | value;
+        octets++;
+        value = -1;
+      } else {
+        return -1;
+      }
+    }
+    return value >= 0 && octets == 3 ? (result << 8) | value : -1;
+  }
+
+  /**
+   * Parses an IPv6 address, with optional {@code ::} compression, trailing dotted quad and zone
+   * id, into its high and low 64 bits.
+   */
+  static boolean parseIpv6(CharSequence s, int from, int to, long[] out) {
+    for (int i = from; i < to; i++) {
+      if (s.charAt(i) == '%') {
+        to = i;
+        break;
+      }
+    }
+    long headHi = 0;
+    long headLo = 0;
+    long tailHi = 0;
+    long tailLo = 0;
+    int headGroups = 0;
+    int tailGroups = 0;
+    boolean compressed = false;
+    int i = from;
+    if (to - i >= 2 && s.charAt(i) == ':' && s.charAt(i + 1) == ':') {
+      compressed = true;
+      i += 2;
+    } else if (i >= to || s.charAt(i) == ':') {
+      return false;
+    }
+    while (i < to) {
+      int start = i;
+      int value = 0;
+      while (i < to && i - start < 4 && Character.digit(s.charAt(i), 16) >= 0) {
+        value = (value << 4) | Character.digit(s.charAt(i), 16);
+        i++;
+      }
+      if (i < to && s.charAt(i) == '.') {
+        long v4 = parseIpv4(s, start, to);
+        if (v4 < 0) {
+          return false;
+        }
+        i = to;
+        if (compressed) {
+          tailHi = (tailHi << 32) | (tailLo >>> 32);
+          tailLo = (tailLo << 32) | v4;
+          tailGroups += 2;
+        } else {
+          headHi = (headHi << 32) | (headLo >>> 32);
+          headLo = (headLo << 32) | v4;
+          headGroups += 2;
+        }
+        break;
+      }
+      if (i == start) {
+        return false;
+      }
+      if (compressed) {
+        tailHi = (tailHi << 16) | (tailLo >>> 48);
+        tailLo = (tailLo << 16) | value;
+        tailGroups++;
+      } else {
+        headHi = (headHi << 16) | (headLo >>> 48);
+        headLo = (headLo << 16) | value;
+        headGroups++;
+      }
+      if (i == to) {
+        break;
+      }
+      if (s.charAt(i) != ':' || ++i == to) {
+        return false;
+      }
+      if (s.charAt(i) == ':') {
+        if (compressed) {
+          return false;
+        }
+        compressed = true;
+        i++;
+      }
+    }
+    int groups = headGroups + tailGroups;
+    if (compressed ? groups > 7 : groups != 8) {
+      return false;
+    }
+    int shift = 16 * (8 - headGroups);
+    if (shift >= 128) {
+      headHi = 0;
+      headLo = 0;
+    } else if (shift >= 64) {
+      headHi = headLo << (shift - 64);
+      headLo = 0;
+    } else if (shift > 0) {
+      headHi = (headHi << shift) | (headLo >>> (64 - shift));
+      headLo <<= shift;
+    }
+    out[0] = headHi | tailHi;
+    out[1] = headLo | tailLo;
+    return true;
+  }
+
+  /** Binary trie over address bits, most significant first, stored in parallel arrays. */
+  private static final class BitTrie {
+    private int[] zero = new int[16];
+    private int[] one = new int[16];
+    private boolean[] terminal = new boolean[16];
+    private int size = 1;
+
+    void add(long hi, long lo, int prefix) {
+      int node = 0;
+      for (int bit = 0; bit < prefix; bit++) {
+        if (terminal[node]) {
+          return;
+        }
+        boolean set = bitAt(hi, lo, bit);
+        int child = set ? one[node] : zero[node];
+        if (child == 0) {
+          if (size == terminal.length) {
+            zero = Arrays.copyOf(zero, size * 2);
+            one = Arrays.copyOf(one, size * 2);
+            terminal = Arrays.copyOf(terminal, size * 2);
+          }
+          child = size++;
+          if (set) {
+            one[node] = child;
+          } else {
+            zero[node] = child;
+          }
+        }
+        node = child;
+      }
+      terminal[node] = true;
+    }
+
+    boolean matches(long hi, long lo, int bits) {
+      int node = 0;
+      for (int bit = 0; !terminal[node]; bit++) {
+        if (bit == bits) {
+          return false;
+        }
+        node = bitAt(hi, lo, bit) ? one[node] : zero[node];
+        if (node == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean bitAt(long hi, long lo, int bit) {
+      return bit < 64 ? ((hi >>> (63 - bit)) & 1) != 0 : ((lo >>> (127 - bit)) & 1) != 0;
+    }
+  }
+}
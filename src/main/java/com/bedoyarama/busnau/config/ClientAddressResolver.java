@@ -0,0 +1,78 @@
+package com.bedoyarama.busnau.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the address of the client behind any trusted reverse proxies. The forwarding header is
+ * only honoured when the direct peer is a trusted proxy, and is then walked right to left,
+ * skipping hops that are themselves trusted proxies; the first untrusted hop is the client. Hops
+ * further left were supplied by the client and are ignored.
+ *
+ * <p>Without a forwarding header the peer address is returned as is, without parsing or
+ * allocating.
+ */
+@Component
+public class ClientAddressResolver {
+
+  /** MDC key under which the resolved address is available to log statements. */
+  public static final String MDC_KEY = "clientIp";
+
+  private final CidrMatcher trustedProxies;
+  private final String header;
+
+  public ClientAddressResolver(
+      @Value(
+              "${client-address.trusted-proxies:"
+                  + "127.0.0.0/8,::1/128,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16}")
+          List<String> trustedProxies,
+      @Value("${client-address.forwarded-header:X-Forwarded-For}") String header) {
+    this.trustedProxies = new CidrMatcher(trustedProxies);
+    this.header = header;
+  }
+
+  public String resolve(HttpServletRequest request) {
+    String remoteAddress = request.getRemoteAddr();
+    String forwarded = request.getHeader(header);
+    if (forwarded == null || forwarded.isEmpty() || !trustedProxies.matches(remoteAddress)) {
+      return remoteAddress;
+    }
+    List<String> lines = Collections.list(request.getHeaders(header));
+    if (lines.size() > 1) {
+      // Proxies may append their own header line instead of extending the first one
+      forwarded = String.join(",", lines);
+    }
+
+    // [from, to) of the leftmost trusted hop seen so far; -1 while that is still the peer
+    int trustedFrom = -1;
+    int trustedTo = -1;
+    int end = forwarded.length();
+    while (end >= 0) {
+      int comma = forwarded.lastIndexOf(',', end - 1);
+      int from = comma + 1;
+      int to = end;
+      while (from < to && Character.isWhitespace(forwarded.charAt(from))) {
+        from++;
+      }
+      while (to > from && Character.isWhitespace(forwarded.charAt(to - 1))) {
+        to--;
+      }
+      if (from < to) {
+        if (!trustedProxies.matches(forwarded, from, to)) {
+          if (CidrMatcher.isAddress(forwarded, from, to)) {
+            return forwarded.substring(from, to);
+          }
+          // Garbage from the hop we trust least; fall back to the last verified hop
+          break;
+        }
+        trustedFrom = from;
+        trustedTo = to;
+      }
+      end = comma;
+    }
+    return trustedFrom < 0 ? remoteAddress : forwarded.substring(trustedFrom, trustedTo);
+  }
+}
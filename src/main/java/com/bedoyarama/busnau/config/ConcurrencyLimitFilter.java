@@ -0,0 +1,148 @@
+package com.bedoyarama.busnau.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Sheds load when the node is saturated, e.g. because the database slowed down and requests are
+ * queueing for connections. Requests beyond the {@link AdaptiveConcurrencyLimit} are answered
+ * right away with 503 and {@code Retry-After} instead of waiting on a Tomcat thread. Paths listed
+ * in {@code concurrency-limit.priority-paths} get extra headroom above the limit so health checks
+ * and logins keep working while ordinary traffic is shed. Async requests such as streaming
+ * exports hold their slot until the response completes, not just until the request thread returns.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+  private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+  private final AdaptiveConcurrencyLimit limit;
+  private final PathPatternTrie<Boolean> priorityPaths = new PathPatternTrie<>();
+  private final int priorityHeadroom;
+  private final boolean enabled;
+  private final Counter dropped;
+  private final Counter droppedPriority;
+
+  public ConcurrencyLimitFilter(
+      MeterRegistry meterRegistry,
+      @Value("${concurrency-limit.enabled:true}") boolean enabled,
+      @Value("${concurrency-limit.initial:20}") int initialLimit,
+      @Value("${concurrency-limit.min:5}") int minLimit,
+      @Value("${concurrency-limit.max:200}") int maxLimit,
+      @Value("${concurrency-limit.priority-paths:/actuator/health/**,/api/auth/**}")
+          List<String> priorityPaths,
+      @Value("${concurrency-limit.priority-headroom:20}") int priorityHeadroom) {
+    this.enabled = enabled;
+    this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit);
+    for (String path : priorityPaths) {
+      this.priorityPaths.add(path.trim(), List.of(), Boolean.TRUE);
+    }
+    this.priorityHeadroom = priorityHeadroom;
+    Gauge.builder("concurrency.limit", limit, AdaptiveConcurrencyLimit::limit)
+        .description("Current adaptive concurrency limit")
+        .register(meterRegistry);
+    Gauge.builder("concurrency.inflight", limit, AdaptiveConcurrencyLimit::inflight)
+        .description("Requests currently holding a concurrency slot")
+        .register(meterRegistry);
+    this.dropped =
+        Counter.builder("concurrency.dropped")
+            .tag("priority", "false")
+            .description("Requests shed with 503")
+            .register(meterRegistry);
+    this.droppedPriority =
+        Counter.builder("concurrency.dropped")
+            .tag("priority", "true")
+            .description("Requests shed with 503")
+            .register(meterRegistry);
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    if (!enabled) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    boolean priority = priorityPaths.match(request.getMethod(), path) != null;
+    if (!limit.tryAcquire(priority ? priorityHeadroom : 0)) {
+      (priority ? droppedPriority : dropped).increment();
+      log.debug("Shedding {} {}, concurrency limit {}", request.getMethod(), path, limit.limit());
+      response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+      response.getWriter().write("Service temporarily overloaded");
+      return;
+    }
+    long start = System.nanoTime();
+    boolean async = false;
+    try {
+      filterChain.doFilter(request, response);
+      async = request.isAsyncStarted();
+    } finally {
+      if (async) {
+        // Streaming responses keep working after this thread returns; hold the slot until done
+        request.getAsyncContext().addListener(new ReleaseOnCompletion());
+      } else {
+        limit.release(System.nanoTime() - start);
+      }
+    }
+  }
+
+  /**
+   * Releases the slot of an async request once, whichever way the request ends. Its duration is
+   * not fed to the limit: a long export would otherwise read as saturation and shrink the limit
+   * for every other request.
+   */
+  private class ReleaseOnCompletion implements AsyncListener {
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // A re-started async cycle gets a fresh listener list; keep this one attached
+      event.getAsyncContext().addListener(this);
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        limit.release();
+      }
+    }
+  }
+
+  int currentLimit() {
+    return limit.limit();
+  }
+}
@@ -0,0 +1,76 @@
+package com.bedoyarama.busnau.config;
+
+import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.service.UserService;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolves {@link CurrentUser} parameters from the authenticated principal. The result is
+ * memoized as a request attribute, so the user is looked up at most once per request, and only
+ * when the principal was not already a {@link UserPrincipal}.
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+  private static final String ATTRIBUTE = CurrentUserArgumentResolver.class.getName() + ".user";
+
+  private final UserService userService;
+
+  public CurrentUserArgumentResolver(UserService userService) {
+    this.userService = userService;
+  }
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return parameter.hasParameterAnnotation(CurrentUser.class)
+        && UserPrincipal.class.isAssignableFrom(parameter.getParameterType());
+  }
+
+  @Override
+  public UserPrincipal resolveArgument(
+      MethodParameter parameter,
+      ModelAndViewContainer mavContainer,
+      NativeWebRequest webRequest,
+      WebDataBinderFactory binderFactory) {
+    Object memoized = webRequest.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (memoized instanceof UserPrincipal principal) {
+      return principal;
+    }
+    UserPrincipal principal = resolve(SecurityContextHolder.getContext().getAuthentication());
+    if (principal != null) {
+      webRequest.setAttribute(ATTRIBUTE, principal, RequestAttributes.SCOPE_REQUEST);
+    }
+    return principal;
+  }
+
+  private UserPrincipal resolve(Authentication authentication) {
+    if (authentication == null
+        || !authentication.isAuthenticated()
+        || authentication instanceof AnonymousAuthenticationToken) {
+      return null;
+    }
+    if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+      return principal;
+    }
+    User user = userService.findByUsername(authentication.getName());
+    if (user == null) {
+      return null;
+    }
+    return new UserPrincipal(
+        user.getId(),
+        user.getUsername(),
+        null,
+        user.getRole(),
+        user.getRoleVersion(),
+        user.getTokenEpoch());
+  }
+}
@@ -0,0 +1,145 @@
+package com.bedoyarama.busnau.config;
+
+import com.bedoyarama.busnau.config.RateLimitPolicies.Limit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Token buckets shared by all nodes through the {@code rate_limit_buckets} table. A bucket refills
+ * continuously at {@code capacity} tokens per period; a missing row is a full bucket. Nodes take
+ * tokens in small leases (see {@link LeasedBucket}) so the database sees one locked read-modify-
+ * write per lease rather than per request.
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.distributed.enabled", havingValue = "true")
+public class JdbcRateLimitStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(JdbcRateLimitStore.class);
+
+  private record Row(double tokens, long refilledAt) {}
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final Clock clock;
+  private final Duration retention;
+  private final Counter leases;
+
+  public JdbcRateLimitStore(
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${rate-limit.distributed.retention:1h}") Duration retention) {
+    this(jdbcTemplate, transactionManager, meterRegistry, retention, Clock.systemUTC());
+  }
+
+  JdbcRateLimitStore(
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      Duration retention,
+      Clock clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.retention = retention;
+    this.clock = clock;
+    this.leases =
+        Counter.builder("rate-limit.leases")
+            .description("Token leases taken from the shared bucket store")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Takes up to {@code requested} tokens from the shared bucket.
+   *
+   * @return the number of tokens granted, possibly 0
+   */
+  public long lease(String key, Limit limit, long requested) {
+    return lease(key, limit, requested, 0);
+  }
+
+  /**
+   * Returns {@code unused} tokens of an expired lease to the shared bucket, capped at its
+   * capacity, then takes up to {@code requested} tokens from it in the same transaction.
+   *
+   * @return the number of tokens granted, possibly 0
+   */
+  public long lease(String key, Limit limit, long requested, long unused) {
+    leases.increment();
+    try {
+      return leaseOnce(key, limit, requested, unused);
+    } catch (DuplicateKeyException e) {
+      // Another node created the row first; it exists now and can be locked
+      return leaseOnce(key, limit, requested, unused);
+    }
+  }
+
+  private long leaseOnce(String key, Limit limit, long requested, long unused) {
+    Long granted =
+        transactionTemplate.execute(
+            status -> {
+              long now = clock.millis();
+              List<Row> rows =
+                  jdbcTemplate.query(
+                      "SELECT tokens, refilled_at FROM rate_limit_buckets"
+                          + " WHERE bucket_key = ? FOR UPDATE",
+                      (rs, i) -> new Row(rs.getDouble(1), rs.getLong(2)),
+                      key);
+              double tokens = limit.capacity();
+              if (!rows.isEmpty()) {
+                Row row = rows.get(0);
+                double refill =
+                    Math.max(0, now - row.refilledAt())
+                        * (double) limit.capacity()
+                        / limit.period().toMillis();
+                tokens = Math.min(limit.capacity(), row.tokens() + refill + unused);
+              }
+              long taken = Math.min(requested, (long) Math.floor(tokens));
+              tokens -= taken;
+              if (rows.isEmpty()) {
+                jdbcTemplate.update(
+                    "INSERT INTO rate_limit_buckets (bucket_key, tokens, refilled_at)"
+                        + " VALUES (?, ?, ?)",
+                    key,
+                    tokens,
+                    now);
+              } else {
+                jdbcTemplate.update(
+                    "UPDATE rate_limit_buckets SET tokens = ?, refilled_at = ?"
+                        + " WHERE bucket_key = ?",
+                    tokens,
+                    now,
+                    key);
+              }
+              return taken;
+            });
+    return granted != null ? granted : 0;
+  }
+
+  /** Deletes buckets untouched for longer than the retention, which have refilled anyway. */
+  @Scheduled(
+      initialDelayString = "${rate-limit.distributed.purge-interval:PT10M}",
+      fixedDelayString = "${rate-limit.distributed.purge-interval:PT10M}")
+  public int purge() {
+    int deleted =
+        jdbcTemplate.update(
+            "DELETE FROM rate_limit_buckets WHERE refilled_at < ?",
+            clock.millis() - retention.toMillis());
+    if (deleted > 0) {
+      logger.info("Purged {} idle rate-limit buckets", deleted);
+    }
+    return deleted;
+  }
+}
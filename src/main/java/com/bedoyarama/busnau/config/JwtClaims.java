@@ -0,0 +1,64 @@
+package com.bedoyarama.busnau.config;
+
+import com.bedoyarama.busnau.entity.Role;
+import io.jsonwebtoken.Claims;
+import java.time.Instant;
+
+/**
+ * Immutable view of the claims of a JWT whose signature and expiry have been verified. {@code
+ * userId}, {@code role} and {@code roleVersion} are {@code null} for tokens issued without them;
+ * a missing {@code tokenEpoch} reads as 0, the epoch every user starts in. {@code type} is {@link
+ * #ACCESS} or {@link #REFRESH}, or {@code null} for tokens issued before it was added.
+ */
+public record JwtClaims(
+    String type,
+    String username,
+    Long userId,
+    Role role,
+    Integer roleVersion,
+    int tokenEpoch,
+    Instant issuedAt,
+    Instant expiresAt) {
+
+  public static final String ACCESS = "access";
+  public static final String REFRESH = "refresh";
+
+  static final String TYPE = "typ";
+  static final String USER_ID = "uid";
+  static final String ROLE = "role";
+  static final String ROLE_VERSION = "rv";
+  static final String TOKEN_EPOCH = "te";
+
+  public boolean isAccessToken() {
+    return ACCESS.equals(type);
+  }
+
+  public boolean isRefreshToken() {
+    return REFRESH.equals(type);
+  }
+
+  /** Whether the token carries everything needed to rebuild a {@link UserPrincipal}. */
+  public boolean hasPrincipal() {
+    return userId != null && role != null && roleVersion != null;
+  }
+
+  public UserPrincipal toPrincipal() {
+    return new UserPrincipal(userId, username, null, role, roleVersion, tokenEpoch);
+  }
+
+  static JwtClaims from(Claims claims) {
+    Number userId = claims.get(USER_ID, Number.class);
+    String role = claims.get(ROLE, String.class);
+    Number roleVersion = claims.get(ROLE_VERSION, Number.class);
+    Number tokenEpoch = claims.get(TOKEN_EPOCH, Number.class);
+    return new JwtClaims(
+        claims.get(TYPE, String.class),
+        claims.getSubject(),
+        userId != null ? userId.longValue() : null,
+        role != null ? Role.valueOf(role) : null,
+        roleVersion != null ? roleVersion.intValue() : null,
+        tokenEpoch != null ? tokenEpoch.intValue() : 0,
+        claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+        claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+  }
+}
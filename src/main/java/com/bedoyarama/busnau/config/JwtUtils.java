@@ -2,9 +2,12 @@ package com.bedoyarama.busnau.config;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecurityException;
+import jakarta.annotation.PostConstruct;
 import java.nio.charset.StandardCharsets;
-import java.security.Key;
 import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
 import javax.crypto.SecretKey;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -27,56 +30,87 @@ public class JwtUtils {
   @Value("${jwt.refreshExpiration}")
   private long jwtRefreshExpirationMs;
 
-  private Key getSigningKey() {
-    return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+  private SecretKey signingKey;
+
+  private JwtParser jwtParser;
+
+  /**
+   * Derives the HMAC key and the (thread-safe, immutable) parser once, so verifying a token does
+   * not rebuild either on every request.
+   */
+  @PostConstruct
+  void init() {
+    signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    jwtParser = Jwts.parser().verifyWith(signingKey).build();
   }
 
   public String generateJwtToken(Authentication authentication) {
     UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
 
     assert userPrincipal != null;
-    return Jwts.builder()
-        .subject(userPrincipal.getUsername())
-        .issuedAt(new Date())
-        .expiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(getSigningKey())
-        .compact();
+    JwtBuilder builder =
+        Jwts.builder()
+            .claim(JwtClaims.TYPE, JwtClaims.ACCESS)
+            .subject(userPrincipal.getUsername())
+            .issuedAt(new Date())
+            .expiration(new Date((new Date()).getTime() + jwtExpirationMs));
+    if (userPrincipal instanceof UserPrincipal principal) {
+      // Lets AuthTokenFilter rebuild the principal without loading the user
+      builder
+          .claim(JwtClaims.USER_ID, principal.getId())
+          .claim(JwtClaims.ROLE, principal.getRole().name())
+          .claim(JwtClaims.ROLE_VERSION, principal.getRoleVersion())
+          .claim(JwtClaims.TOKEN_EPOCH, principal.getTokenEpoch());
+    }
+    return builder.signWith(signingKey).compact();
   }
 
   public String generateRefreshToken(Authentication authentication) {
     UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
 
     assert userPrincipal != null;
+    return generateRefreshToken(userPrincipal.getUsername());
+  }
+
+  public String generateRefreshToken(String username) {
     return Jwts.builder()
-        .subject(userPrincipal.getUsername())
+        .id(UUID.randomUUID().toString()) // keeps two logins within the same second distinct
+        .claim(JwtClaims.TYPE, JwtClaims.REFRESH)
+        .subject(username)
         .issuedAt(new Date())
         .expiration(new Date((new Date()).getTime() + jwtRefreshExpirationMs))
-        .signWith(getSigningKey())
+        .signWith(signingKey)
         .compact();
   }
 
-  public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser()
-        .verifyWith((SecretKey) getSigningKey())
-        .build()
-        .parseSignedClaims(token)
-        .getPayload()
-        .getSubject();
-  }
-
-  public boolean validateJwtToken(String authToken) {
+  /**
+   * Parses and verifies the token in a single pass.
+   *
+   * @return the verified claims, or empty if the token is malformed, expired, unsupported or
+   *     carries an invalid signature
+   */
+  public Optional<JwtClaims> verifyJwtToken(String authToken) {
     try {
-      Jwts.parser().verifyWith((SecretKey) getSigningKey()).build().parseSignedClaims(authToken);
-      return true;
+      return Optional.of(JwtClaims.from(jwtParser.parseSignedClaims(authToken).getPayload()));
     } catch (MalformedJwtException e) {
       log.error("Invalid JWT token: {}", e.getMessage());
     } catch (ExpiredJwtException e) {
       log.error("JWT token is expired: {}", e.getMessage());
     } catch (UnsupportedJwtException e) {
       log.error("JWT token is unsupported: {}", e.getMessage());
+    } catch (SecurityException e) {
+      log.error("JWT signature is invalid: {}", e.getMessage());
     } catch (IllegalArgumentException e) {
       log.error("JWT claims string is empty: {}", e.getMessage());
     }
-    return false;
+    return Optional.empty();
+  }
+
+  public String getUserNameFromJwtToken(String token) {
+    return jwtParser.parseSignedClaims(token).getPayload().getSubject();
+  }
+
+  public boolean validateJwtToken(String authToken) {
+    return verifyJwtToken(authToken).isPresent();
   }
 }
@@ -0,0 +1,163 @@
+package com.bedoyarama.busnau.config;
+
+import com.bedoyarama.busnau.config.RateLimitPolicies.Limit;
+import io.micrometer.core.instrument.Counter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * Node-local view of a shared bucket. Requests consume tokens leased from {@link
+ * JdbcRateLimitStore}; a new lease is taken only when the current one is used up or has expired.
+ * Leases are sized by demand: they start at one token and double, up to {@code leaseSize}, only
+ * while the previous lease was used up before it expired, so a sparse client never strands tokens
+ * on a node. Tokens left in an expired lease are handed back to the shared bucket with the next
+ * lease. After an empty lease the bucket denies locally until one token has had time to refill,
+ * so a rejected client cannot turn every request into a database round trip.
+ *
+ * <p>Only one lease per bucket is in flight at a time, and it runs outside the bucket's monitor;
+ * concurrent requests wait for it up to the lease TTL. When the store fails, or a lease takes
+ * longer than that, requests are decided by a node-local bucket with the same limit instead, so a
+ * slow or unavailable database degrades rate limiting to per node rather than failing requests.
+ * After a failure the store is left alone for one lease TTL.
+ */
+final class LeasedBucket {
+
+  private static final Logger logger = LoggerFactory.getLogger(LeasedBucket.class);
+
+  private final String key;
+  private final Limit limit;
+  private final JdbcRateLimitStore store;
+  private final long leaseSize;
+  private final long leaseTtlNanos;
+  private final long refillNanosPerToken;
+  private final BooleanSupplier fallback;
+  private final Counter fallbacks;
+
+  private long tokens;
+  private long granted;
+  private long nextLease = 1;
+  private long validUntil;
+  private long deniedUntil;
+  private long storeUnavailableUntil;
+  private CompletableFuture<Void> leasing;
+
+  LeasedBucket(
+      String key,
+      Limit limit,
+      JdbcRateLimitStore store,
+      long leaseSize,
+      long leaseTtlNanos,
+      Counter fallbacks) {
+    this.key = key;
+    this.limit = limit;
+    this.store = store;
+    this.leaseSize = Math.max(1, Math.min(leaseSize, limit.capacity()));
+    this.leaseTtlNanos = leaseTtlNanos;
+    this.refillNanosPerToken = limit.period().toNanos() / Math.max(1, limit.capacity());
+    this.fallback = RateLimitConfig.localBucket(limit);
+    this.fallbacks = fallbacks;
+    this.validUntil = System.nanoTime();
+    this.deniedUntil = validUntil;
+    this.storeUnavailableUntil = validUntil;
+  }
+
+  boolean tryConsume() {
+    while (true) {
+      long now = System.nanoTime();
+      long requested;
+      long unused;
+      CompletableFuture<Void> lease;
+      synchronized (this) {
+        if (tokens > 0 && now - validUntil < 0) {
+          tokens--;
+          return true;
+        }
+        if (now - deniedUntil < 0) {
+          return false;
+        }
+        if (now - storeUnavailableUntil < 0) {
+          return useFallback();
+        }
+        lease = leasing;
+        if (lease == null) {
+          boolean usedUp = tokens == 0 && granted > 0 && now - validUntil < 0;
+          nextLease = usedUp ? Math.min(leaseSize, nextLease * 2) : 1;
+          requested = nextLease;
+          unused = tokens;
+          tokens = 0;
+          leasing = new CompletableFuture<>();
+        } else {
+          requested = 0;
+          unused = 0;
+        }
+      }
+      if (lease != null) {
+        if (!awaitLease(lease)) {
+          return useFallback();
+        }
+        continue;
+      }
+      return takeLease(now, requested, unused);
+    }
+  }
+
+  private boolean takeLease(long now, long requested, long unused) {
+    CompletableFuture<Void> lease;
+    long leased;
+    try {
+      leased = store.lease(key, limit, requested, unused);
+    } catch (DataAccessException | TransactionException e) {
+      logger.warn(
+          "Shared rate-limit store failed, limiting {} on this node: {}", key, e.getMessage());
+      synchronized (this) {
+        storeUnavailableUntil = System.nanoTime() + leaseTtlNanos;
+        lease = leasing;
+        leasing = null;
+      }
+      lease.complete(null);
+      return useFallback();
+    }
+    boolean allowed;
+    synchronized (this) {
+      granted = leased;
+      tokens = leased;
+      validUntil = now + leaseTtlNanos;
+      if (tokens == 0) {
+        deniedUntil = now + refillNanosPerToken;
+        allowed = false;
+      } else {
+        tokens--;
+        allowed = true;
+      }
+      lease = leasing;
+      leasing = null;
+    }
+    lease.complete(null);
+    return allowed;
+  }
+
+  // Whether the lease finished within one lease TTL
+  private boolean awaitLease(CompletableFuture<Void> lease) {
+    try {
+      lease.get(leaseTtlNanos, TimeUnit.NANOSECONDS);
+      return true;
+    } catch (TimeoutException | ExecutionException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private boolean useFallback() {
+    fallbacks.increment();
+    return fallback.getAsBoolean();
+  }
+}
@@ -0,0 +1,60 @@
+package com.bedoyarama.busnau.config;
+
+import java.time.Clock;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks failed logins per username and per client address and locks either out with exponential
+ * backoff, so a locked-out attempt is rejected before the user is loaded or a password hash is
+ * computed. A successful login clears the username's failures but not the address's, so one
+ * valid account cannot be used to reset an address that is guessing other accounts.
+ */
+@Component
+public class LoginThrottle {
+
+  private final StripedFailureCounter usernames;
+  private final StripedFailureCounter addresses;
+  private final Clock clock;
+
+  public LoginThrottle(
+      @Value("${login-throttle.stripes:65536}") int stripes,
+      @Value("${login-throttle.username.max-failures:5}") int usernameThreshold,
+      @Value("${login-throttle.address.max-failures:20}") int addressThreshold,
+      @Value("${login-throttle.base-backoff:1s}") Duration baseBackoff,
+      @Value("${login-throttle.max-backoff:15m}") Duration maxBackoff) {
+    this(
+        new StripedFailureCounter(stripes, usernameThreshold, baseBackoff, maxBackoff),
+        new StripedFailureCounter(stripes, addressThreshold, baseBackoff, maxBackoff),
+        Clock.systemUTC());
+  }
+
+  LoginThrottle(StripedFailureCounter usernames, StripedFailureCounter addresses, Clock clock) {
+    this.usernames = usernames;
+    this.addresses = addresses;
+    this.clock = clock;
+  }
+
+  /** Time until a login for this username from this address may be attempted, or zero. */
+  public Duration retryAfter(String username, String clientAddress) {
+    long now = clock.millis();
+    long wait =
+        Math.max(
+            username != null ? usernames.retryAfterMillis(username, now) : 0,
+            addresses.retryAfterMillis(clientAddress, now));
+    return Duration.ofMillis(wait);
+  }
+
+  public void loginFailed(String username, String clientAddress) {
+    long now = clock.millis();
+    if (username != null) {
+      usernames.recordFailure(username, now);
+    }
+    addresses.recordFailure(clientAddress, now);
+  }
+
+  public void loginSucceeded(String username) {
+    usernames.reset(username);
+  }
+}
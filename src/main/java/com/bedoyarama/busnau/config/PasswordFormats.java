@@ -0,0 +1,22 @@
+package com.bedoyarama.busnau.config;
+
+import java.util.regex.Pattern;
+
+/** Recognises values that are already password hashes rather than raw passwords. */
+public final class PasswordFormats {
+
+  /**
+   * A modular-crypt BCrypt hash (version, two-digit cost, 22-char salt, 31-char hash), either bare
+   * or with the {@code {bcrypt}} prefix written by {@code DelegatingPasswordEncoder}. Other
+   * {@code {id}} prefixes are not recognised: no encoder is registered for them, so a value like
+   * {@code {hello}world} can only be a raw password.
+   */
+  private static final Pattern BCRYPT =
+      Pattern.compile("^(\\{bcrypt})?\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+
+  private PasswordFormats() {}
+
+  public static boolean isEncoded(String password) {
+    return password != null && BCRYPT.matcher(password).matches();
+  }
+}
@@ -0,0 +1,9 @@
+package com.bedoyarama.busnau.config;
+
+/** Thrown when the password hashing pool is saturated and the request should be retried later. */
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+  public PasswordHashingUnavailableException(String message) {
+    super(message);
+  }
+}
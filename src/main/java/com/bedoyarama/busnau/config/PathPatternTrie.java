@@ -0,0 +1,112 @@
+package com.bedoyarama.busnau.config;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps request path patterns and HTTP methods to values, compiled into a trie of path segments so
+ * a lookup walks the request path once regardless of how many patterns are registered.
+ *
+ * <p>Patterns are {@code /}-separated and may use {@code *} or {@code {name}} for exactly one
+ * segment and a trailing {@code **} for any remainder, including none. More specific patterns
+ * win: a literal segment over {@code *}, and {@code *} over {@code **}; for the same pattern a
+ * value registered for the request's method wins over one registered for all methods.
+ */
+final class PathPatternTrie<T> {
+
+  private final Node<T> root = new Node<>();
+
+  /**
+   * Registers a value for a pattern. An empty {@code methods} collection matches every method.
+   *
+   * @throws IllegalArgumentException if {@code **} is not the last segment
+   */
+  void add(String pattern, Collection<String> methods, T value) {
+    Node<T> node = root;
+    String[] segments = pattern.split("/");
+    for (int i = 0; i < segments.length; i++) {
+      String segment = segments[i];
+      if (segment.isEmpty()) {
+        continue;
+      }
+      if (segment.equals("**")) {
+        if (i != segments.length - 1) {
+          throw new IllegalArgumentException("'**' must be the last segment: " + pattern);
+        }
+        if (node.rest == null) {
+          node.rest = new Node<>();
+        }
+        node = node.rest;
+      } else if (segment.equals("*") || (segment.startsWith("{") && segment.endsWith("}"))) {
+        if (node.wildcard == null) {
+          node.wildcard = new Node<>();
+        }
+        node = node.wildcard;
+      } else {
+        node = node.literals.computeIfAbsent(segment, s -> new Node<>());
+      }
+    }
+    if (methods == null || methods.isEmpty()) {
+      node.anyMethod = value;
+    } else {
+      for (String method : methods) {
+        node.byMethod.put(method.toUpperCase(Locale.ROOT), value);
+      }
+    }
+  }
+
+  /** Returns the value of the most specific matching pattern, or {@code null}. */
+  T match(String method, String path) {
+    return match(root, method, path, skipSlashes(path, 0));
+  }
+
+  private T match(Node<T> node, String method, String path, int start) {
+    if (start >= path.length()) {
+      T value = node.valueFor(method);
+      return value != null || node.rest == null ? value : node.rest.valueFor(method);
+    }
+    int end = path.indexOf('/', start);
+    if (end < 0) {
+      end = path.length();
+    }
+    int next = skipSlashes(path, end);
+    if (!node.literals.isEmpty()) {
+      Node<T> literal = node.literals.get(path.substring(start, end));
+      if (literal != null) {
+        T value = match(literal, method, path, next);
+        if (value != null) {
+          return value;
+        }
+      }
+    }
+    if (node.wildcard != null) {
+      T value = match(node.wildcard, method, path, next);
+      if (value != null) {
+        return value;
+      }
+    }
+    return node.rest != null ? node.rest.valueFor(method) : null;
+  }
+
+  private static int skipSlashes(String path, int index) {
+    while (index < path.length() && path.charAt(index) == '/') {
+      index++;
+    }
+    return index;
+  }
+
+  private static final class Node<T> {
+    final Map<String, Node<T>> literals = new HashMap<>();
+    final Map<String, T> byMethod = new HashMap<>();
+    Node<T> wildcard;
+    Node<T> rest;
+    T anyMethod;
+
+    T valueFor(String method) {
+      T value = byMethod.isEmpty() ? null : byMethod.get(method);
+      return value != null ? value : anyMethod;
+    }
+  }
+}
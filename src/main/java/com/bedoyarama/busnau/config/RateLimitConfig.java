@@ -1,26 +1,112 @@
 package com.bedoyarama.busnau.config;
 
+import com.bedoyarama.busnau.config.RateLimitPolicies.Limit;
+import com.bedoyarama.busnau.config.RateLimitPolicies.Policy;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.time.Duration;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+/**
+ * Per-client token buckets. The limit comes from the {@link RateLimitPolicies} entry matching the
+ * request's path and method; buckets are keyed by user id for authenticated requests, with
+ * separate limits for USER and ADMIN, and by client IP otherwise.
+ *
+ * <p>With {@code rate-limit.distributed.enabled} the buckets are shared by all nodes through
+ * {@link JdbcRateLimitStore}, and each node only holds a {@link LeasedBucket} per client.
+ *
+ * <p>Buckets live in a size-bounded cache and expire once a client has been idle for the longest
+ * refill period, at which point a fresh bucket is indistinguishable from the old one, so memory
+ * stays flat however many distinct clients show up.
+ */
 @Configuration
+@EnableConfigurationProperties(RateLimitPolicies.class)
 public class RateLimitConfig {
 
   private static final Logger logger = LoggerFactory.getLogger(RateLimitConfig.class);
-  private final ConcurrentHashMap<String, Bucket> cache = new ConcurrentHashMap<>();
+
+  /** A configured policy with its index, which prefixes the keys of its buckets. */
+  private record CompiledPolicy(int index, Limit anonymous, Limit user, Limit admin) {}
+
+  private final CompiledPolicy defaultPolicy;
+  private final PathPatternTrie<CompiledPolicy> policies = new PathPatternTrie<>();
+  private final Cache<String, BooleanSupplier> cache;
+  private final Counter rejected;
+  private final Counter storeFallbacks;
+  private final ClientAddressResolver clientAddressResolver;
+  private final JdbcRateLimitStore sharedStore;
+  private final long leaseSize;
+  private final Duration leaseTtl;
+
+  public RateLimitConfig(
+      MeterRegistry meterRegistry,
+      RateLimitPolicies rateLimitPolicies,
+      ClientAddressResolver clientAddressResolver,
+      Optional<JdbcRateLimitStore> sharedStore,
+      @Value("${rate-limit.capacity:10}") long capacity,
+      @Value("${rate-limit.refill-period:1m}") Duration refillPeriod,
+      @Value("${rate-limit.buckets.maximum-size:100000}") long maximumSize,
+      @Value("${rate-limit.distributed.lease-size:5}") long leaseSize,
+      @Value("${rate-limit.distributed.lease-ttl:1s}") Duration leaseTtl) {
+    this.clientAddressResolver = clientAddressResolver;
+    this.sharedStore = sharedStore.orElse(null);
+    this.leaseSize = leaseSize;
+    this.leaseTtl = leaseTtl;
+    Limit defaultLimit = new Limit(capacity, refillPeriod);
+    this.defaultPolicy = new CompiledPolicy(-1, defaultLimit, defaultLimit, defaultLimit);
+    Duration longestPeriod = refillPeriod;
+    List<Policy> configured = rateLimitPolicies.policies();
+    for (int i = 0; i < configured.size(); i++) {
+      Policy policy = configured.get(i);
+      policies.add(
+          policy.pattern(),
+          policy.methods(),
+          new CompiledPolicy(i, policy.anonymous(), policy.user(), policy.admin()));
+      for (Limit limit : List.of(policy.anonymous(), policy.user(), policy.admin())) {
+        if (limit.period().compareTo(longestPeriod) > 0) {
+          longestPeriod = limit.period();
+        }
+      }
+    }
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterAccess(longestPeriod)
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "rate-limit.buckets");
+    this.rejected =
+        Counter.builder("rate-limit.rejected")
+            .description("Requests rejected with 429")
+            .register(meterRegistry);
+    this.storeFallbacks =
+        Counter.builder("rate-limit.store.fallback")
+            .description("Requests limited on this node because the shared store failed")
+            .register(meterRegistry);
+  }
 
   @Bean(name = "rateLimitFilter")
   public OncePerRequestFilter rateLimitFilter() {
@@ -30,31 +116,65 @@ public class RateLimitConfig {
           HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
           throws ServletException, IOException {
 
-        String ip = getClientIP(request);
-        Bucket bucket = cache.computeIfAbsent(ip, this::newBucket);
+        String clientAddress = clientAddressResolver.resolve(request);
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        CompiledPolicy policy = policies.match(request.getMethod(), path);
+        if (policy == null) {
+          policy = defaultPolicy;
+        }
 
-        if (bucket.tryConsume(1)) {
-          filterChain.doFilter(request, response);
+        String key;
+        Limit limit;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal user) {
+          limit = user.isAdmin() ? policy.admin() : policy.user();
+          key = policy.index() + (user.isAdmin() ? ":admin:" : ":user:") + user.getId();
         } else {
-          logger.warn("Rate limit exceeded for IP: " + ip);
+          limit = policy.anonymous();
+          key = policy.index() + ":ip:" + clientAddress;
+        }
+        BooleanSupplier bucket = cache.get(key, k -> newBucket(k, limit));
+
+        if (bucket.getAsBoolean()) {
+          MDC.put(ClientAddressResolver.MDC_KEY, clientAddress);
+          try {
+            filterChain.doFilter(request, response);
+          } finally {
+            MDC.remove(ClientAddressResolver.MDC_KEY);
+          }
+        } else {
+          rejected.increment();
+          logger.warn("Rate limit exceeded for " + key);
           response.setStatus(429);
           response.getWriter().write("Too many requests");
         }
       }
 
-      private Bucket newBucket(String ip) {
-        return Bucket.builder()
-            .addLimit(Bandwidth.classic(10, Refill.intervally(10, Duration.ofMinutes(1))))
-            .build();
-      }
-
-      private String getClientIP(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-          return xForwardedFor.split(",")[0].trim();
+      private BooleanSupplier newBucket(String key, Limit limit) {
+        if (sharedStore != null) {
+          return new LeasedBucket(
+                  key, limit, sharedStore, leaseSize, leaseTtl.toNanos(), storeFallbacks)
+              ::tryConsume;
         }
-        return request.getRemoteAddr();
+        return localBucket(limit);
       }
     };
   }
+
+  /** A bucket held on this node only. */
+  static BooleanSupplier localBucket(Limit limit) {
+    Bucket bucket =
+        Bucket.builder()
+            .addLimit(
+                Bandwidth.classic(
+                    limit.capacity(), Refill.intervally(limit.capacity(), limit.period())))
+            .build();
+    return () -> bucket.tryConsume(1);
+  }
+
+  /** Number of buckets currently held, after pending evictions have run. */
+  long bucketCount() {
+    cache.cleanUp();
+    return cache.estimatedSize();
+  }
 }
@@ -0,0 +1,42 @@
+package com.bedoyarama.busnau.config;
+
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Per-endpoint rate-limit policies, bound from {@code rate-limit.policies[n].*}. Requests that
+ * match no policy get the default {@code rate-limit.capacity} per {@code rate-limit.refill-period}.
+ *
+ * @param policies matched by {@link PathPatternTrie} rules, most specific pattern first
+ */
+@ConfigurationProperties("rate-limit")
+public record RateLimitPolicies(List<Policy> policies) {
+
+  public RateLimitPolicies {
+    policies = policies != null ? List.copyOf(policies) : List.of();
+  }
+
+  /**
+   * @param pattern path pattern, e.g. {@code /api/tasks/**}
+   * @param methods HTTP methods the policy applies to; empty for all
+   * @param anonymous limit per client IP for unauthenticated requests
+   * @param user limit per user id for USER principals; defaults to {@code anonymous}
+   * @param admin limit per user id for ADMIN principals; defaults to {@code user}
+   */
+  public record Policy(
+      String pattern, List<String> methods, Limit anonymous, Limit user, Limit admin) {
+
+    public Policy {
+      if (pattern == null || anonymous == null) {
+        throw new IllegalArgumentException("Rate-limit policy needs a pattern and a limit");
+      }
+      methods = methods != null ? List.copyOf(methods) : List.of();
+      user = user != null ? user : anonymous;
+      admin = admin != null ? admin : user;
+    }
+  }
+
+  /** {@code capacity} requests per {@code period}. */
+  public record Limit(long capacity, Duration period) {}
+}
@@ -1,6 +1,12 @@
 package com.bedoyarama.busnau.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,6 +14,7 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -16,14 +23,20 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Configuration
 public class SecurityConfig {
 
+  private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
+  private static final String BCRYPT_ID = "bcrypt";
+
   private final AuthTokenFilter authTokenFilter;
   private final OncePerRequestFilter rateLimitFilter;
+  private final ConcurrencyLimitFilter concurrencyLimitFilter;
 
   public SecurityConfig(
       AuthTokenFilter authTokenFilter,
-      @Qualifier("rateLimitFilter") OncePerRequestFilter rateLimitFilter) {
+      @Qualifier("rateLimitFilter") OncePerRequestFilter rateLimitFilter,
+      ConcurrencyLimitFilter concurrencyLimitFilter) {
     this.authTokenFilter = authTokenFilter;
     this.rateLimitFilter = rateLimitFilter;
+    this.concurrencyLimitFilter = concurrencyLimitFilter;
   }
 
   @Bean
@@ -42,14 +55,38 @@ public class SecurityConfig {
                     .anyRequest()
                     .authenticated())
         .csrf(AbstractHttpConfigurer::disable)
+        // Registration order is execution order: the rate limiter keys on the authenticated user
+        .addFilterBefore(authTokenFilter, UsernamePasswordAuthenticationFilter.class)
         .addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
-        .addFilterBefore(authTokenFilter, UsernamePasswordAuthenticationFilter.class);
+        // After the rate limiter, so over-quota clients never occupy a concurrency slot
+        .addFilterBefore(concurrencyLimitFilter, UsernamePasswordAuthenticationFilter.class);
     return http.build();
   }
 
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public PasswordEncoder passwordEncoder(
+      MeterRegistry meterRegistry,
+      @Value("${password-hashing.concurrency:4}") int concurrency,
+      @Value("${password-hashing.queue-capacity:100}") int queueCapacity,
+      @Value("${password-hashing.queue-timeout:2s}") Duration queueTimeout,
+      @Value("${password-hashing.max-hash-time:2s}") Duration maxHashTime,
+      @Value("${password-hashing.bcrypt.strength:0}") int strength,
+      @Value("${password-hashing.bcrypt.target-latency:250ms}") Duration targetLatency,
+      @Value("${password-hashing.bcrypt.min-strength:10}") int minStrength,
+      @Value("${password-hashing.bcrypt.max-strength:14}") int maxStrength) {
+    int cost =
+        strength > 0
+            ? strength
+            : BCryptCostCalibrator.calibrate(targetLatency, minStrength, maxStrength);
+    logger.info("Using BCrypt strength {} (target latency {})", cost, targetLatency);
+
+    // New hashes are written as {bcrypt} at the chosen cost; unprefixed legacy hashes still
+    // verify and are upgraded on the next successful login
+    Map<String, PasswordEncoder> encoders = Map.of(BCRYPT_ID, new BCryptPasswordEncoder(cost));
+    DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(BCRYPT_ID, encoders);
+    delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+    return new BoundedPasswordEncoder(
+        delegating, concurrency, queueCapacity, queueTimeout, maxHashTime, meterRegistry);
   }
 
   @Bean
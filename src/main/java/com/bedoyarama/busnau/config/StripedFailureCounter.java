@@ -0,0 +1,92 @@
+package com.bedoyarama.busnau.config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free failure counter with exponential backoff. Keys are hashed into two rows of
+ * stripes (a count-min sketch), each stripe packing a failure count and the time of the last
+ * failure into one {@code long} updated by CAS. A key's count is the smaller of its two stripes,
+ * so a collision in one row does not lock out an innocent key. Memory is fixed however many keys
+ * are seen.
+ *
+ * <p>Once a key reaches {@code threshold} failures it is locked for {@code baseBackoff}, doubling
+ * with every further failure up to {@code maxBackoff}. Counts older than {@code maxBackoff} are
+ * forgotten.
+ */
+final class StripedFailureCounter {
+
+  private static final long TIME_MASK = (1L << 48) - 1;
+  private static final int MAX_COUNT = 0xFFFF;
+
+  private final AtomicLongArray cells;
+  private final int stripes;
+  private final int threshold;
+  private final long baseBackoffMillis;
+  private final long maxBackoffMillis;
+
+  StripedFailureCounter(int stripes, int threshold, Duration baseBackoff, Duration maxBackoff) {
+    this.stripes = Integer.highestOneBit(Math.max(2, stripes - 1)) << 1;
+    this.cells = new AtomicLongArray(this.stripes * 2);
+    this.threshold = threshold;
+    this.baseBackoffMillis = baseBackoff.toMillis();
+    this.maxBackoffMillis = maxBackoff.toMillis();
+  }
+
+  /** Milliseconds until {@code key} may try again, or 0 if it is not locked. */
+  long retryAfterMillis(String key, long nowMillis) {
+    int hash = key.hashCode();
+    long cell = minCell(cells.get(index(hash, 0)), cells.get(index(hash, 1)), nowMillis);
+    int count = count(cell, nowMillis);
+    if (count < threshold) {
+      return 0;
+    }
+    int doublings = Math.min(count - threshold, 30);
+    long backoff = Math.min(maxBackoffMillis, baseBackoffMillis << doublings);
+    return Math.max(0, (cell & TIME_MASK) + backoff - nowMillis);
+  }
+
+  void recordFailure(String key, long nowMillis) {
+    int hash = key.hashCode();
+    increment(index(hash, 0), nowMillis);
+    increment(index(hash, 1), nowMillis);
+  }
+
+  /** Clears the key's stripes, and with them any key that happens to share both stripes. */
+  void reset(String key) {
+    int hash = key.hashCode();
+    cells.set(index(hash, 0), 0);
+    cells.set(index(hash, 1), 0);
+  }
+
+  private void increment(int index, long nowMillis) {
+    while (true) {
+      long cell = cells.get(index);
+      int count = Math.min(MAX_COUNT, count(cell, nowMillis) + 1);
+      long updated = ((long) count << 48) | (nowMillis & TIME_MASK);
+      if (cells.compareAndSet(index, cell, updated)) {
+        return;
+      }
+    }
+  }
+
+  private long minCell(long a, long b, long nowMillis) {
+    return count(a, nowMillis) <= count(b, nowMillis) ? a : b;
+  }
+
+  private int count(long cell, long nowMillis) {
+    long last = cell & TIME_MASK;
+    return nowMillis - last > maxBackoffMillis ? 0 : (int) (cell >>> 48);
+  }
+
+  private int index(int hash, int row) {
+    int h = row == 0 ? hash : hash ^ 0x9E3779B9;
+    // murmur3 finalizer, so similar keys land on unrelated stripes
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return row * stripes + (h & (stripes - 1));
+  }
+}
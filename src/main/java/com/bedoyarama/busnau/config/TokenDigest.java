@@ -0,0 +1,32 @@
+package com.bedoyarama.busnau.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/** SHA-256 digests of bearer/refresh tokens, so raw tokens never have to be kept around. */
+public final class TokenDigest {
+
+  private static final ThreadLocal<MessageDigest> SHA_256 =
+      ThreadLocal.withInitial(
+          () -> {
+            try {
+              return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+              throw new IllegalStateException("SHA-256 is not available", e);
+            }
+          });
+
+  private TokenDigest() {}
+
+  public static byte[] sha256(String token) {
+    MessageDigest digest = SHA_256.get();
+    digest.reset();
+    return digest.digest(token.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static String sha256Hex(String token) {
+    return HexFormat.of().formatHex(sha256(token));
+  }
+}
@@ -2,25 +2,59 @@ package com.bedoyarama.busnau.config;
 
 import com.bedoyarama.busnau.entity.User;
 import com.bedoyarama.busnau.repository.UserRepository;
+import com.bedoyarama.busnau.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 @Configuration
 public class UserDetailsServiceConfig {
 
   @Bean
-  public UserDetailsService userDetailsService(UserRepository userRepository) {
-    return username -> {
-      User user = userRepository.findByUsername(username);
-      if (user == null) {
-        throw new UsernameNotFoundException("User not found");
-      }
-      return org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
-          .password(user.getPassword())
-          .roles(user.getRole().name())
-          .build();
+  public CachingUserDetailsService userDetailsService(
+      UserRepository userRepository,
+      MeterRegistry meterRegistry,
+      @Value("${user-details.cache.maximum-size:10000}") long maximumSize,
+      @Value("${user-details.cache.ttl:10m}") Duration ttl) {
+    return new CachingUserDetailsService(
+        username -> {
+          User user = userRepository.findByUsername(username);
+          if (user == null) {
+            throw new UsernameNotFoundException("User not found");
+          }
+          return new UserPrincipal(
+              user.getId(),
+              user.getUsername(),
+              user.getPassword(),
+              user.getRole(),
+              user.getRoleVersion(),
+              user.getTokenEpoch());
+        },
+        maximumSize,
+        ttl,
+        meterRegistry);
+  }
+
+  /**
+   * Lets the authentication provider persist a re-encoded hash when a user logs in with a
+   * password stored under an outdated encoding or cost.
+   */
+  @Bean
+  public UserDetailsPasswordService userDetailsPasswordService(UserService userService) {
+    return (user, newPassword) -> {
+      UserPrincipal principal = (UserPrincipal) user;
+      userService.updatePassword(principal.getId(), principal.getUsername(), newPassword);
+      return new UserPrincipal(
+          principal.getId(),
+          principal.getUsername(),
+          newPassword,
+          principal.getRole(),
+          principal.getRoleVersion(),
+          principal.getTokenEpoch());
     };
   }
 }
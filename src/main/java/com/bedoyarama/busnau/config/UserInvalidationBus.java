@@ -0,0 +1,222 @@
+package com.bedoyarama.busnau.config;
+
+import com.bedoyarama.busnau.entity.UserInvalidation;
+import com.bedoyarama.busnau.repository.UserInvalidationRepository;
+import com.bedoyarama.busnau.service.UserChangedEvent;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propagates {@link UserChangedEvent}s between nodes so every replica evicts its local user, role
+ * and token caches. On PostgreSQL local events are sent with {@code NOTIFY} and a dedicated
+ * listener connection receives the other nodes' events. That connection is opened with {@link
+ * DriverManager} from the {@code spring.datasource} settings rather than borrowed from the pool, so
+ * holding it open does not take a pooled connection away from requests. On other databases (H2 in
+ * tests) events are written to {@code user_invalidations} and polled. Polling re-reads every row
+ * created within {@code poll-lookback} and skips the ids it has already dispatched, so a row whose
+ * transaction commits after rows with higher ids is still picked up.
+ */
+@Component
+public class UserInvalidationBus implements SmartLifecycle {
+
+  static final String CHANNEL = "user_changed";
+
+  private static final Logger logger = LoggerFactory.getLogger(UserInvalidationBus.class);
+
+  private final DataSource dataSource;
+  private final String jdbcUrl;
+  private final String username;
+  private final String password;
+  private final JdbcTemplate jdbcTemplate;
+  private final UserInvalidationRepository invalidationRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private final boolean enabled;
+  private final Duration pollInterval;
+  private final Duration pollLookback;
+  private final Duration retention;
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private volatile boolean running;
+  private volatile boolean postgres;
+  private Thread worker;
+
+  public UserInvalidationBus(
+      DataSource dataSource,
+      @Value("${spring.datasource.url:}") String jdbcUrl,
+      @Value("${spring.datasource.username:}") String username,
+      @Value("${spring.datasource.password:}") String password,
+      JdbcTemplate jdbcTemplate,
+      UserInvalidationRepository invalidationRepository,
+      ApplicationEventPublisher eventPublisher,
+      @Value("${cache.invalidation.enabled:true}") boolean enabled,
+      @Value("${cache.invalidation.poll-interval:1s}") Duration pollInterval,
+      @Value("${cache.invalidation.poll-lookback:30s}") Duration pollLookback,
+      @Value("${cache.invalidation.retention:1h}") Duration retention) {
+    this.dataSource = dataSource;
+    this.jdbcUrl = jdbcUrl;
+    this.username = username;
+    this.password = password;
+    this.jdbcTemplate = jdbcTemplate;
+    this.invalidationRepository = invalidationRepository;
+    this.eventPublisher = eventPublisher;
+    this.enabled = enabled;
+    this.pollInterval = pollInterval;
+    this.pollLookback = pollLookback;
+    this.retention = retention;
+  }
+
+  @EventListener
+  public void onUserChanged(UserChangedEvent event) {
+    if (!running || event.remote()) {
+      return;
+    }
+    try {
+      if (postgres) {
+        String username = event.username() != null ? event.username() : "";
+        String payload = nodeId + ":" + event.userId() + ":" + username;
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+      } else {
+        invalidationRepository.save(
+            new UserInvalidation(null, nodeId, event.userId(), event.username(), Instant.now()));
+      }
+    } catch (RuntimeException e) {
+      // Other nodes fall back to their cache TTLs
+      logger.warn("Could not publish invalidation for user {}: {}", event.userId(), e.getMessage());
+    }
+  }
+
+  @Override
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    try (Connection connection = dataSource.getConnection()) {
+      postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+    } catch (SQLException e) {
+      logger.warn("Could not detect database for user invalidation bus: {}", e.getMessage());
+    }
+    running = true;
+    worker = new Thread(postgres ? this::listen : this::poll, "user-invalidation-bus");
+    worker.setDaemon(true);
+    worker.start();
+    logger.info("User invalidation bus started ({})", postgres ? "LISTEN/NOTIFY" : "polling");
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (worker != null) {
+      worker.interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  private void listen() {
+    while (running) {
+      try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+          PGNotification[] notifications =
+              pgConnection.getNotifications((int) pollInterval.toMillis());
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              try {
+                receive(notification.getParameter());
+              } catch (RuntimeException e) {
+                // One bad payload or listener must not stop this node receiving invalidations
+                logger.warn(
+                    "Could not dispatch invalidation {}: {}",
+                    notification.getParameter(),
+                    e.getMessage());
+              }
+            }
+          }
+        }
+      } catch (SQLException | RuntimeException e) {
+        if (running) {
+          logger.warn("User invalidation listener failed, reconnecting: {}", e.getMessage());
+          pause();
+        }
+      }
+    }
+  }
+
+  private void receive(String payload) {
+    String[] parts = payload.split(":", 3);
+    if (parts.length < 3 || nodeId.equals(parts[0])) {
+      return;
+    }
+    String username = parts[2].isEmpty() ? null : parts[2];
+    eventPublisher.publishEvent(new UserChangedEvent(Long.valueOf(parts[1]), username, true));
+  }
+
+  private void poll() {
+    // Ids already dispatched, kept until their rows fall out of the lookback window
+    Map<Long, Instant> dispatched = new HashMap<>();
+    Instant nextCleanup = Instant.now();
+    while (running) {
+      try {
+        Instant cutoff = Instant.now().minus(pollLookback);
+        for (UserInvalidation invalidation :
+            invalidationRepository.findByCreatedAtAfterOrderByIdAsc(cutoff)) {
+          if (dispatched.putIfAbsent(invalidation.getId(), invalidation.getCreatedAt()) != null
+              || nodeId.equals(invalidation.getNodeId())) {
+            continue;
+          }
+          try {
+            eventPublisher.publishEvent(
+                new UserChangedEvent(invalidation.getUserId(), invalidation.getUsername(), true));
+          } catch (RuntimeException e) {
+            logger.warn(
+                "Could not dispatch invalidation of user {}: {}",
+                invalidation.getUserId(),
+                e.getMessage());
+          }
+        }
+        dispatched.values().removeIf(createdAt -> createdAt.isBefore(cutoff));
+        if (Instant.now().isAfter(nextCleanup)) {
+          invalidationRepository.deleteByCreatedAtBefore(Instant.now().minus(retention));
+          nextCleanup = Instant.now().plus(retention);
+        }
+      } catch (RuntimeException e) {
+        logger.warn("User invalidation poll failed: {}", e.getMessage());
+      }
+      pause();
+    }
+  }
+
+  private void pause() {
+    try {
+      Thread.sleep(pollInterval.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      running = false;
+    }
+  }
+}
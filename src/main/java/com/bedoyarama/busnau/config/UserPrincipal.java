@@ -0,0 +1,93 @@
+package com.bedoyarama.busnau.config;
+
+import com.bedoyarama.busnau.entity.Role;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Authenticated principal carrying the user's id and role, so neither the filter chain nor the
+ * controllers have to reload the {@code users} row to find them. Built either from the database
+ * at login or from the signed claims of a stateless access token (in which case there is no
+ * password).
+ */
+public class UserPrincipal implements UserDetails, CredentialsContainer {
+
+  private final Long id;
+  private final String username;
+  private String password;
+  private final Role role;
+  private final int roleVersion;
+  private final int tokenEpoch;
+  private final List<GrantedAuthority> authorities;
+
+  public UserPrincipal(
+      Long id, String username, String password, Role role, int roleVersion, int tokenEpoch) {
+    this.id = id;
+    this.username = username;
+    this.password = password;
+    this.role = role;
+    this.roleVersion = roleVersion;
+    this.tokenEpoch = tokenEpoch;
+    this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Role getRole() {
+    return role;
+  }
+
+  public int getRoleVersion() {
+    return roleVersion;
+  }
+
+  public int getTokenEpoch() {
+    return tokenEpoch;
+  }
+
+  public boolean isAdmin() {
+    return role == Role.ADMIN;
+  }
+
+  @Override
+  public String getUsername() {
+    return username;
+  }
+
+  @Override
+  public String getPassword() {
+    return password;
+  }
+
+  @Override
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return authorities;
+  }
+
+  @Override
+  public void eraseCredentials() {
+    password = null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof UserPrincipal other && Objects.equals(username, other.username);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(username);
+  }
+
+  @Override
+  public String toString() {
+    return "UserPrincipal[id=" + id + ", username=" + username + ", role=" + role + "]";
+  }
+}
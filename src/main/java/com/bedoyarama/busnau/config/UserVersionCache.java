@@ -0,0 +1,55 @@
+package com.bedoyarama.busnau.config;
+
+import com.bedoyarama.busnau.repository.UserRepository;
+import com.bedoyarama.busnau.repository.UserVersions;
+import com.bedoyarama.busnau.service.UserChangedEvent;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short-lived, per-node view of the version counters of each user. Stateless access tokens are
+ * compared against it so a role change or a logout of all sessions invalidates them within {@code
+ * jwt.user-versions.ttl} (immediately on the node that made the change) without a database read
+ * per request.
+ */
+@Component
+public class UserVersionCache {
+
+  private final LoadingCache<Long, UserVersions> cache;
+
+  public UserVersionCache(
+      UserRepository userRepository,
+      @Value("${jwt.user-versions.maximum-size:10000}") long maximumSize,
+      @Value("${jwt.user-versions.ttl:30s}") Duration ttl) {
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttl)
+            .build(id -> userRepository.findVersionsById(id).orElse(null));
+  }
+
+  /** Returns whether the principal's signed role version and token epoch are still current. */
+  public boolean isCurrent(UserPrincipal principal) {
+    return isCurrent(principal, principal.getTokenEpoch());
+  }
+
+  /**
+   * Like {@link #isCurrent(UserPrincipal)}, but checks the epoch a token was issued under rather
+   * than the principal's, for principals loaded from the database.
+   */
+  public boolean isCurrent(UserPrincipal principal, int tokenEpoch) {
+    UserVersions versions = cache.get(principal.getId());
+    return versions != null
+        && versions.roleVersion() == principal.getRoleVersion()
+        && versions.tokenEpoch() == tokenEpoch;
+  }
+
+  @EventListener
+  public void onUserChanged(UserChangedEvent event) {
+    cache.invalidate(event.userId());
+  }
+}
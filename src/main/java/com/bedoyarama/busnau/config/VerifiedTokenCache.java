@@ -0,0 +1,103 @@
+package com.bedoyarama.busnau.config;
+
+import com.bedoyarama.busnau.service.UserChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of access tokens that already passed signature verification, keyed by the
+ * SHA-256 digest of the token. Entries expire after the configured TTL or at the token's {@code
+ * exp} claim, whichever comes first.
+ */
+@Component
+public class VerifiedTokenCache {
+
+  private final Cache<String, Entry> cache;
+
+  public VerifiedTokenCache(
+      @Value("${jwt.cache.maximum-size:10000}") long maximumSize,
+      @Value("${jwt.cache.ttl:5m}") Duration ttl,
+      MeterRegistry meterRegistry) {
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(new TokenExpiry(ttl))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+  }
+
+  /** Returns the principal resolved for this token, or {@code null} on a miss. */
+  public UserDetails get(String token) {
+    Entry entry = cache.getIfPresent(TokenDigest.sha256Hex(token));
+    if (entry == null || !entry.expiresAt().isAfter(Instant.now())) {
+      return null;
+    }
+    return entry.principal();
+  }
+
+  public void put(String token, UserDetails principal, Instant expiresAt) {
+    if (expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+      return;
+    }
+    cache.put(TokenDigest.sha256Hex(token), new Entry(principal, expiresAt));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  @EventListener
+  public void onUserChanged(UserChangedEvent event) {
+    cache
+        .asMap()
+        .values()
+        .removeIf(
+            entry ->
+                entry.principal() instanceof UserPrincipal principal
+                    ? principal.getId().equals(event.userId())
+                    : entry.principal().getUsername().equals(event.username()));
+  }
+
+  /** Hit, miss and eviction counts since startup. */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  private record Entry(UserDetails principal, Instant expiresAt) {}
+
+  private static final class TokenExpiry implements Expiry<String, Entry> {
+
+    private final long ttlNanos;
+
+    TokenExpiry(Duration ttl) {
+      this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+      long untilExp = Duration.between(Instant.now(), entry.expiresAt()).toNanos();
+      return Math.max(0, Math.min(ttlNanos, untilExp));
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+      return expireAfterCreate(key, entry, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
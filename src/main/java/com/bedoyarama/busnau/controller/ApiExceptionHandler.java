@@ -0,0 +1,39 @@
+package com.bedoyarama.busnau.controller;
+
+import com.bedoyarama.busnau.config.PasswordHashingUnavailableException;
+import com.bedoyarama.busnau.service.InvalidCursorException;
+import com.bedoyarama.busnau.service.UnsupportedExportFormatException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+  private static final Logger logger = LoggerFactory.getLogger(ApiExceptionHandler.class);
+
+  @ExceptionHandler(PasswordHashingUnavailableException.class)
+  public ResponseEntity<String> handlePasswordHashingUnavailable(
+      PasswordHashingUnavailableException e) {
+    logger.warn("Rejecting request: {}", e.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body("Service temporarily overloaded");
+  }
+
+  @ExceptionHandler(InvalidCursorException.class)
+  public ResponseEntity<String> handleInvalidCursor(InvalidCursorException e) {
+    logger.debug("Rejecting page request: {}", e.getMessage());
+    return ResponseEntity.badRequest().body(e.getMessage());
+  }
+
+  @ExceptionHandler(UnsupportedExportFormatException.class)
+  public ResponseEntity<String> handleUnsupportedExportFormat(UnsupportedExportFormatException e) {
+    logger.debug("Rejecting export request: {}", e.getMessage());
+    return ResponseEntity.badRequest().body(e.getMessage());
+  }
+}
@@ -1,15 +1,21 @@
 package com.bedoyarama.busnau.controller;
 
+import com.bedoyarama.busnau.config.ClientAddressResolver;
+import com.bedoyarama.busnau.config.CurrentUser;
+import com.bedoyarama.busnau.config.JwtClaims;
 import com.bedoyarama.busnau.config.JwtUtils;
-import com.bedoyarama.busnau.entity.RefreshToken;
-import com.bedoyarama.busnau.entity.User;
-import com.bedoyarama.busnau.repository.RefreshTokenRepository;
+import com.bedoyarama.busnau.config.LoginThrottle;
+import com.bedoyarama.busnau.config.TokenDigest;
+import com.bedoyarama.busnau.config.UserPrincipal;
+import com.bedoyarama.busnau.service.RefreshTokenService;
 import com.bedoyarama.busnau.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,8 +23,11 @@ import lombok.Getter;
 import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -38,21 +47,29 @@ public class AuthController {
 
   private final UserService userService;
 
-  private final RefreshTokenRepository refreshTokenRepository;
+  private final RefreshTokenService refreshTokenService;
 
   private final UserDetailsService userDetailsService;
 
+  private final LoginThrottle loginThrottle;
+
+  private final ClientAddressResolver clientAddressResolver;
+
   public AuthController(
       AuthenticationManager authenticationManager,
       JwtUtils jwtUtils,
       UserService userService,
-      RefreshTokenRepository refreshTokenRepository,
-      UserDetailsService userDetailsService) {
+      RefreshTokenService refreshTokenService,
+      UserDetailsService userDetailsService,
+      LoginThrottle loginThrottle,
+      ClientAddressResolver clientAddressResolver) {
     this.authenticationManager = authenticationManager;
     this.jwtUtils = jwtUtils;
     this.userService = userService;
-    this.refreshTokenRepository = refreshTokenRepository;
+    this.refreshTokenService = refreshTokenService;
     this.userDetailsService = userDetailsService;
+    this.loginThrottle = loginThrottle;
+    this.clientAddressResolver = clientAddressResolver;
   }
 
   @Operation(
@@ -69,28 +86,48 @@ public class AuthController {
             responseCode = "400",
             description = "Invalid username or password",
             content = @Content),
+        @ApiResponse(
+            responseCode = "429",
+            description = "Too many failed logins, retry later",
+            content = @Content),
         @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
       })
   @PostMapping("/login")
-  public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-    Authentication authentication =
-        authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(
-                loginRequest.getUsername(), loginRequest.getPassword()));
+  public ResponseEntity<?> authenticateUser(
+      @Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+    String username = loginRequest.getUsername();
+    String clientAddress = clientAddressResolver.resolve(request);
+    Duration retryAfter = loginThrottle.retryAfter(username, clientAddress);
+    if (!retryAfter.isZero()) {
+      // Rejected before the user is loaded or the password hashed
+      logger.warn("Login for {} from {} throttled", username, clientAddress);
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.toSeconds() + 1))
+          .body("Too many failed login attempts");
+    }
+
+    Authentication authentication;
+    try {
+      authentication =
+          authenticationManager.authenticate(
+              new UsernamePasswordAuthenticationToken(username, loginRequest.getPassword()));
+    } catch (BadCredentialsException e) {
+      loginThrottle.loginFailed(username, clientAddress);
+      throw e;
+    }
+    loginThrottle.loginSucceeded(username);
 
     SecurityContextHolder.getContext().setAuthentication(authentication);
     String accessToken = jwtUtils.generateJwtToken(authentication);
     String refreshToken = jwtUtils.generateRefreshToken(authentication);
 
-    User user = userService.findByUsername(loginRequest.getUsername());
+    // Loaded by the authentication provider; no need to read the user again
+    UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
 
-    // Save refresh token
-    RefreshToken refreshTokenEntity = new RefreshToken();
-    refreshTokenEntity.setToken(refreshToken);
-    refreshTokenEntity.setUser(user);
-    refreshTokenEntity.setExpiryDate(
+    refreshTokenService.issue(
+        user.getId(),
+        TokenDigest.sha256(refreshToken),
         Instant.now().plusMillis(jwtUtils.getJwtRefreshExpirationMs()));
-    refreshTokenRepository.save(refreshTokenEntity);
 
     Map<String, Object> response = new HashMap<>();
     response.put("accessToken", accessToken);
@@ -121,33 +158,59 @@ public class AuthController {
       })
   @PostMapping("/refresh")
   public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshRequest refreshRequest) {
-    logger.info("Refresh token request received: {}", refreshRequest.getRefreshToken());
+    logger.info("Refresh token request received");
     String requestRefreshToken = refreshRequest.getRefreshToken();
+    JwtClaims claims =
+        requestRefreshToken != null
+            ? jwtUtils.verifyJwtToken(requestRefreshToken).orElse(null)
+            : null;
+    if (claims == null || !claims.isRefreshToken()) {
+      return ResponseEntity.badRequest().body("Refresh token is invalid or expired");
+    }
+
+    byte[] presentedHash = TokenDigest.sha256(requestRefreshToken);
+    if (refreshTokenService.revokeFamilyIfReplayed(presentedHash)) {
+      return ResponseEntity.badRequest().body("Refresh token is expired or revoked");
+    }
+
+    RefreshTokenService.Rotation rotation =
+        refreshTokenService.rotate(
+            presentedHash,
+            user -> jwtUtils.generateRefreshToken(user.getUsername()),
+            Instant.now().plusMillis(jwtUtils.getJwtRefreshExpirationMs()));
+    return switch (rotation.outcome()) {
+      case ROTATED -> {
+        // Tokens go to the owner of the rotated row, not to whoever holds the claimed username now
+        UserDetails userDetails =
+            userDetailsService.loadUserByUsername(rotation.user().getUsername());
+        UsernamePasswordAuthenticationToken auth =
+            new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        Map<String, Object> response = new HashMap<>();
+        response.put("accessToken", jwtUtils.generateJwtToken(auth));
+        response.put("refreshToken", rotation.refreshToken());
+        yield ResponseEntity.ok(response);
+      }
+      case NOT_FOUND -> ResponseEntity.badRequest().body("Refresh token not found");
+      case REUSED, EXPIRED ->
+          ResponseEntity.badRequest().body("Refresh token is expired or revoked");
+    };
+  }
 
-    return refreshTokenRepository
-        .findByToken(requestRefreshToken)
-        .map(
-            refreshToken -> {
-              if (refreshToken.isExpired() || refreshToken.isRevoked()) {
-                refreshTokenRepository.delete(refreshToken);
-                return ResponseEntity.badRequest().body("Refresh token is expired or revoked");
-              }
-
-              User user = refreshToken.getUser();
-              UserDetails userDetails = userDetailsService.loadUserByUsername(user.getUsername());
-              UsernamePasswordAuthenticationToken auth =
-                  new UsernamePasswordAuthenticationToken(
-                      userDetails, null, userDetails.getAuthorities());
-
-              String newAccessToken = jwtUtils.generateJwtToken(auth);
-
-              Map<String, Object> response = new HashMap<>();
-              response.put("accessToken", newAccessToken);
-              response.put("refreshToken", requestRefreshToken);
-
-              return ResponseEntity.ok(response);
-            })
-        .orElse(ResponseEntity.badRequest().body("Refresh token not found"));
+  @Operation(
+      summary = "Log out of all sessions",
+      responses = {
+        @ApiResponse(responseCode = "204", description = "All sessions revoked"),
+        @ApiResponse(responseCode = "401", description = "Not authenticated", content = @Content)
+      })
+  @PostMapping("/logout-all")
+  public ResponseEntity<Void> logoutAll(@CurrentUser UserPrincipal currentUser) {
+    if (currentUser == null) {
+      return ResponseEntity.status(401).build();
+    }
+    userService.revokeSessions(currentUser.getId(), currentUser.getUsername());
+    logger.info("User {} logged out of all sessions", currentUser.getUsername());
+    return ResponseEntity.noContent().build();
   }
 
   @Setter
@@ -0,0 +1,16 @@
+package com.bedoyarama.busnau.controller;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BulkTaskIdsRequest {
+  @NotEmpty(message = "At least one task id is required")
+  @Size(max = 1000, message = "At most 1000 task ids per request")
+  private List<@NotNull Long> ids;
+}
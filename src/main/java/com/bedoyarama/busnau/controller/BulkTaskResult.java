@@ -0,0 +1,4 @@
+package com.bedoyarama.busnau.controller;
+
+/** Number of tasks a bulk update or delete touched. */
+public record BulkTaskResult(int affected) {}
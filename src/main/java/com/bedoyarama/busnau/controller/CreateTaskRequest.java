@@ -1,6 +1,7 @@
 package com.bedoyarama.busnau.controller;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import java.time.LocalDate;
 import lombok.Getter;
 import lombok.Setter;
@@ -9,6 +10,7 @@ import lombok.Setter;
 @Setter
 public class CreateTaskRequest {
   @NotBlank(message = "Title is required")
+  @Size(max = 100, message = "Title must be at most 100 characters")
   private String title;
 
   private String description;
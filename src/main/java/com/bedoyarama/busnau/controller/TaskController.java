@@ -1,8 +1,13 @@
 package com.bedoyarama.busnau.controller;
 
-import com.bedoyarama.busnau.entity.Role;
+import com.bedoyarama.busnau.config.CurrentUser;
+import com.bedoyarama.busnau.config.UserPrincipal;
 import com.bedoyarama.busnau.entity.Task;
 import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.service.CursorPage;
+import com.bedoyarama.busnau.service.TaskExporter;
+import com.bedoyarama.busnau.service.TaskImporter;
+import com.bedoyarama.busnau.service.TaskOrder;
 import com.bedoyarama.busnau.service.TaskService;
 import com.bedoyarama.busnau.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -11,15 +16,23 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/tasks")
@@ -28,10 +41,30 @@ public class TaskController {
   private static final Logger logger = LoggerFactory.getLogger(TaskController.class);
   private final TaskService taskService;
   private final UserService userService;
+  private final TaskExporter taskExporter;
+  private final TaskImporter taskImporter;
+  private final Validator validator;
+  private final int defaultPageSize;
+  private final int maxPageSize;
+  private final int maxBatchSize;
 
-  public TaskController(TaskService taskService, UserService userService) {
+  public TaskController(
+      TaskService taskService,
+      UserService userService,
+      TaskExporter taskExporter,
+      TaskImporter taskImporter,
+      Validator validator,
+      @Value("${pagination.default-page-size:50}") int defaultPageSize,
+      @Value("${pagination.max-page-size:200}") int maxPageSize,
+      @Value("${tasks.batch.max-size:1000}") int maxBatchSize) {
     this.taskService = taskService;
     this.userService = userService;
+    this.taskExporter = taskExporter;
+    this.taskImporter = taskImporter;
+    this.validator = validator;
+    this.defaultPageSize = defaultPageSize;
+    this.maxPageSize = maxPageSize;
+    this.maxBatchSize = maxBatchSize;
   }
 
   @Operation(summary = "Create a new task")
@@ -41,21 +74,20 @@ public class TaskController {
       content =
           @Content(mediaType = "application/json", schema = @Schema(implementation = Task.class)))
   @PostMapping
-  public ResponseEntity<Task> createTask(@RequestBody @Valid CreateTaskRequest request) {
+  public ResponseEntity<Task> createTask(
+      @RequestBody @Valid CreateTaskRequest request, @CurrentUser UserPrincipal currentUser) {
     logger.info("Creating task: {}", request.getTitle());
 
-    User currentUser = getCurrentUser();
-    User taskUser = currentUser;
+    User taskUser = userService.getReference(currentUser.getId());
+    String taskUsername = currentUser.getUsername();
 
     // Allow ADMIN to assign task to another user
-    if (request.getUserId() != null && currentUser.getRole() == Role.ADMIN) {
+    if (request.getUserId() != null && currentUser.isAdmin()) {
       Optional<User> targetUser = userService.findById(request.getUserId());
       if (targetUser.isPresent()) {
         taskUser = targetUser.get();
-        logger.info(
-            "ADMIN {} creating task for user {}",
-            currentUser.getUsername(),
-            taskUser.getUsername());
+        taskUsername = taskUser.getUsername();
+        logger.info("ADMIN {} creating task for user {}", currentUser.getUsername(), taskUsername);
       } else {
         logger.warn(
             "ADMIN {} tried to create task for non-existent user {}",
@@ -65,16 +97,72 @@ public class TaskController {
       }
     }
 
+    Task savedTask = taskService.save(toTask(request, taskUser));
+    logger.info("Task created with ID: {} for user {}", savedTask.getId(), taskUsername);
+    return ResponseEntity.ok(savedTask);
+  }
+
+  @Operation(summary = "Create several tasks in one transaction")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Tasks created successfully",
+      content =
+          @Content(
+              mediaType = "application/json",
+              array = @ArraySchema(schema = @Schema(implementation = Task.class))))
+  @ApiResponse(
+      responseCode = "400",
+      description = "Invalid task, unknown user or too many tasks",
+      content = @Content)
+  @PostMapping("/batch")
+  public ResponseEntity<List<Task>> createTasks(
+      @RequestBody List<CreateTaskRequest> requests, @CurrentUser UserPrincipal currentUser) {
+    logger.info("Creating {} tasks for user {}", requests.size(), currentUser.getUsername());
+    if (requests.isEmpty() || requests.size() > maxBatchSize) {
+      logger.warn("Rejecting batch of {} tasks (max {})", requests.size(), maxBatchSize);
+      return ResponseEntity.badRequest().build();
+    }
+    for (int i = 0; i < requests.size(); i++) {
+      if (!validator.validate(requests.get(i)).isEmpty()) {
+        logger.warn("Rejecting batch: task {} is invalid", i);
+        return ResponseEntity.badRequest().build();
+      }
+    }
+
+    User currentUserRef = userService.getReference(currentUser.getId());
+    Map<Long, User> owners = new HashMap<>();
+    List<Task> tasks = new ArrayList<>(requests.size());
+    for (CreateTaskRequest request : requests) {
+      User taskUser = currentUserRef;
+      // Allow ADMIN to assign tasks to other users
+      if (request.getUserId() != null && currentUser.isAdmin()) {
+        taskUser =
+            owners.computeIfAbsent(
+                request.getUserId(), id -> userService.findById(id).orElse(null));
+        if (taskUser == null) {
+          logger.warn(
+              "ADMIN {} tried to create task for non-existent user {}",
+              currentUser.getUsername(),
+              request.getUserId());
+          return ResponseEntity.badRequest().build();
+        }
+      }
+      tasks.add(toTask(request, taskUser));
+    }
+
+    List<Task> savedTasks = taskService.saveAll(tasks);
+    logger.info("Created {} tasks for user {}", savedTasks.size(), currentUser.getUsername());
+    return ResponseEntity.ok(savedTasks);
+  }
+
+  private static Task toTask(CreateTaskRequest request, User taskUser) {
     Task task = new Task();
     task.setTitle(request.getTitle());
     task.setDescription(request.getDescription());
     task.setDueDate(request.getDueDate());
     task.setCompleted(request.getCompleted() != null ? request.getCompleted() : false);
     task.setUser(taskUser);
-
-    Task savedTask = taskService.save(task);
-    logger.info("Task created with ID: {} for user {}", savedTask.getId(), taskUser.getUsername());
-    return ResponseEntity.ok(savedTask);
+    return task;
   }
 
   @Operation(summary = "Get a task by ID")
@@ -83,70 +171,83 @@ public class TaskController {
       description = "Task found",
       content =
           @Content(mediaType = "application/json", schema = @Schema(implementation = Task.class)))
+  @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
   @ApiResponse(responseCode = "404", description = "Task not found", content = @Content)
   @GetMapping("/{id}")
-  public ResponseEntity<Task> getTaskById(@PathVariable Long id) {
+  public ResponseEntity<Task> getTaskById(
+      @PathVariable Long id, @CurrentUser UserPrincipal currentUser) {
     logger.info("Fetching task by ID: {}", id);
-    Optional<Task> task = taskService.findById(id);
+    Long ownerId = currentUser.isAdmin() ? null : currentUser.getId();
+    Optional<Task> task = taskService.findById(id, ownerId);
     if (task.isPresent()) {
-      User currentUser = getCurrentUser();
-      if (currentUser.getRole() != Role.ADMIN
-          && !task.get().getUser().getId().equals(currentUser.getId())) {
-        logger.warn(
-            "Access denied: task {} does not belong to user {}", id, currentUser.getUsername());
-        return ResponseEntity.status(403).build();
-      }
       logger.info("Task found: {}", task.get().getTitle());
       return ResponseEntity.ok(task.get());
-    } else {
-      logger.warn("Task not found with ID: {}", id);
-      return ResponseEntity.notFound().build();
     }
+    // Only a miss needs a second look, to tell someone else's task from a missing one
+    if (ownerId != null && taskService.existsById(id)) {
+      logger.warn(
+          "Access denied: task {} does not belong to user {}", id, currentUser.getUsername());
+      return ResponseEntity.status(403).build();
+    }
+    logger.warn("Task not found with ID: {}", id);
+    return ResponseEntity.notFound().build();
   }
 
-  @Operation(summary = "Get all tasks")
+  @Operation(summary = "Get all tasks, one page at a time")
   @ApiResponse(
       responseCode = "200",
       description = "Tasks retrieved successfully",
       content =
           @Content(
               mediaType = "application/json",
-              array = @ArraySchema(schema = @Schema(implementation = Task.class))))
+              schema = @Schema(implementation = CursorPage.class)))
+  @ApiResponse(responseCode = "400", description = "Invalid cursor or order", content = @Content)
   @GetMapping
-  public ResponseEntity<List<Task>> getAllTasks() {
-    User currentUser = getCurrentUser();
-    if (currentUser.getRole() == Role.ADMIN) {
+  public ResponseEntity<CursorPage<Task>> getAllTasks(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(defaultValue = "id") String orderBy,
+      @CurrentUser UserPrincipal currentUser) {
+    TaskOrder order = TaskOrder.fromParam(orderBy);
+    int pageSize = CursorPage.pageSize(limit, defaultPageSize, maxPageSize);
+    if (currentUser.isAdmin()) {
       logger.info("Fetching all tasks (ADMIN access)");
-      List<Task> tasks = taskService.findAll();
-      logger.info("Retrieved {} tasks", tasks.size());
-      return ResponseEntity.ok(tasks);
+      CursorPage<Task> page = taskService.findPage(null, order, cursor, pageSize);
+      logger.info("Retrieved {} tasks", page.items().size());
+      return ResponseEntity.ok(page);
     } else {
       logger.info("Fetching all tasks for current user");
-      List<Task> tasks = taskService.findByUserId(currentUser.getId());
-      logger.info("Retrieved {} tasks for user {}", tasks.size(), currentUser.getUsername());
-      return ResponseEntity.ok(tasks);
+      CursorPage<Task> page = taskService.findPage(currentUser.getId(), order, cursor, pageSize);
+      logger.info(
+          "Retrieved {} tasks for user {}", page.items().size(), currentUser.getUsername());
+      return ResponseEntity.ok(page);
     }
   }
 
-  @Operation(summary = "Get tasks by user ID")
+  @Operation(summary = "Get tasks by user ID, one page at a time")
   @ApiResponse(
       responseCode = "200",
       description = "Tasks retrieved successfully",
       content =
           @Content(
               mediaType = "application/json",
-              array = @ArraySchema(schema = @Schema(implementation = Task.class))))
+              schema = @Schema(implementation = CursorPage.class)))
+  @ApiResponse(responseCode = "400", description = "Invalid cursor or order", content = @Content)
   @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
   @GetMapping("/user/{userId}")
-  public ResponseEntity<List<Task>> getTasksByUserId(@PathVariable Long userId) {
-    User currentUser = getCurrentUser();
+  public ResponseEntity<CursorPage<Task>> getTasksByUserId(
+      @PathVariable Long userId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(defaultValue = "id") String orderBy,
+      @CurrentUser UserPrincipal currentUser) {
     logger.info(
         "Current user: {} id: {}, role: {}, requested userId: {}",
         currentUser.getUsername(),
         currentUser.getId(),
         currentUser.getRole(),
         userId);
-    if (currentUser.getRole() != Role.ADMIN && !userId.equals(currentUser.getId())) {
+    if (!currentUser.isAdmin() && !userId.equals(currentUser.getId())) {
       logger.warn(
           "Access denied: user {} trying to access tasks of user {}",
           currentUser.getUsername(),
@@ -154,9 +255,65 @@ public class TaskController {
       return ResponseEntity.status(403).build();
     }
     logger.info("Fetching tasks for user ID: {}", userId);
-    List<Task> tasks = taskService.findByUserId(userId);
-    logger.info("Retrieved {} tasks for user {}", tasks.size(), userId);
-    return ResponseEntity.ok(tasks);
+    CursorPage<Task> page =
+        taskService.findPage(
+            userId,
+            TaskOrder.fromParam(orderBy),
+            cursor,
+            CursorPage.pageSize(limit, defaultPageSize, maxPageSize));
+    logger.info("Retrieved {} tasks for user {}", page.items().size(), userId);
+    return ResponseEntity.ok(page);
+  }
+
+  @Operation(summary = "Export tasks as NDJSON or CSV")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Tasks streamed one per line",
+      content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")})
+  @ApiResponse(responseCode = "400", description = "Unsupported format", content = @Content)
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportTasks(
+      @RequestParam(defaultValue = "ndjson") String format,
+      @CurrentUser UserPrincipal currentUser) {
+    TaskExporter.Format exportFormat = TaskExporter.Format.fromParam(format);
+    // ADMIN exports every task, everyone else only their own
+    Long userId = currentUser.isAdmin() ? null : currentUser.getId();
+    String username = currentUser.getUsername();
+    logger.info("Exporting tasks as {} for user {}", exportFormat, username);
+    StreamingResponseBody body =
+        out -> {
+          long rows = taskExporter.export(userId, exportFormat, out);
+          logger.info("Exported {} tasks for user {}", rows, username);
+        };
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"tasks." + exportFormat.extension() + "\"")
+        .body(body);
+  }
+
+  @Operation(summary = "Import tasks from NDJSON, one task per line")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Import finished; rejected rows are listed with their line numbers",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = TaskImporter.ImportResult.class)))
+  @PostMapping(value = "/import", consumes = "application/x-ndjson")
+  public ResponseEntity<TaskImporter.ImportResult> importTasks(
+      InputStream body, @CurrentUser UserPrincipal currentUser) throws IOException {
+    logger.info("Importing tasks for user {}", currentUser.getUsername());
+    // Rows may only be assigned to other users by an ADMIN, as with single task creation
+    TaskImporter.ImportResult result =
+        taskImporter.importTasks(body, currentUser.getId(), currentUser.isAdmin());
+    logger.info(
+        "Import by user {}: {} imported, {} failed",
+        currentUser.getUsername(),
+        result.imported(),
+        result.failed());
+    return ResponseEntity.ok(result);
   }
 
   @Operation(summary = "Get tasks by completed status")
@@ -168,9 +325,9 @@ public class TaskController {
               mediaType = "application/json",
               array = @ArraySchema(schema = @Schema(implementation = Task.class))))
   @GetMapping("/completed/{completed}")
-  public ResponseEntity<List<Task>> getTasksByCompleted(@PathVariable Boolean completed) {
+  public ResponseEntity<List<Task>> getTasksByCompleted(
+      @PathVariable Boolean completed, @CurrentUser UserPrincipal currentUser) {
     logger.info("Fetching tasks with completed status: {} for current user", completed);
-    User currentUser = getCurrentUser();
     List<Task> tasks = taskService.findByUserIdAndCompleted(currentUser.getId(), completed);
     logger.info(
         "Retrieved {} tasks with completed: {} for user {}",
@@ -191,9 +348,11 @@ public class TaskController {
   @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
   @GetMapping("/user/{userId}/date-range")
   public ResponseEntity<List<Task>> getTasksByUserIdAndDateRange(
-      @PathVariable Long userId, @RequestParam LocalDate start, @RequestParam LocalDate end) {
-    User currentUser = getCurrentUser();
-    if (currentUser.getRole() != Role.ADMIN && !userId.equals(currentUser.getId())) {
+      @PathVariable Long userId,
+      @RequestParam LocalDate start,
+      @RequestParam LocalDate end,
+      @CurrentUser UserPrincipal currentUser) {
+    if (!currentUser.isAdmin() && !userId.equals(currentUser.getId())) {
       logger.warn(
           "Access denied: user {} trying to access date-range tasks of user {}",
           currentUser.getUsername(),
@@ -206,35 +365,81 @@ public class TaskController {
     return ResponseEntity.ok(tasks);
   }
 
+  @Operation(summary = "Mark several of the current user's tasks completed")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Number of tasks updated; ids of other users' tasks are ignored",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = BulkTaskResult.class)))
+  @PostMapping("/bulk/complete")
+  public ResponseEntity<BulkTaskResult> completeTasks(
+      @RequestBody @Valid BulkTaskIdsRequest request, @CurrentUser UserPrincipal currentUser) {
+    logger.info(
+        "Completing {} tasks for user {}", request.getIds().size(), currentUser.getUsername());
+    int affected = taskService.completeByIds(currentUser.getId(), request.getIds());
+    logger.info("Completed {} tasks for user {}", affected, currentUser.getUsername());
+    return ResponseEntity.ok(new BulkTaskResult(affected));
+  }
+
+  @Operation(summary = "Delete several of the current user's tasks")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Number of tasks deleted; ids of other users' tasks are ignored",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = BulkTaskResult.class)))
+  @PostMapping("/bulk/delete")
+  public ResponseEntity<BulkTaskResult> deleteTasks(
+      @RequestBody @Valid BulkTaskIdsRequest request, @CurrentUser UserPrincipal currentUser) {
+    logger.info(
+        "Deleting {} tasks for user {}", request.getIds().size(), currentUser.getUsername());
+    int affected = taskService.deleteByIds(currentUser.getId(), request.getIds());
+    logger.info("Deleted {} tasks for user {}", affected, currentUser.getUsername());
+    return ResponseEntity.ok(new BulkTaskResult(affected));
+  }
+
+  @Operation(summary = "Delete the current user's completed tasks due before a date")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Number of tasks deleted",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = BulkTaskResult.class)))
+  @DeleteMapping("/completed")
+  public ResponseEntity<BulkTaskResult> deleteCompletedTasks(
+      @RequestParam LocalDate before, @CurrentUser UserPrincipal currentUser) {
+    logger.info(
+        "Deleting completed tasks due before {} for user {}", before, currentUser.getUsername());
+    int affected = taskService.deleteCompletedDueBefore(currentUser.getId(), before);
+    logger.info("Deleted {} completed tasks for user {}", affected, currentUser.getUsername());
+    return ResponseEntity.ok(new BulkTaskResult(affected));
+  }
+
   @Operation(summary = "Delete a task")
   @ApiResponse(responseCode = "204", description = "Task deleted successfully")
+  @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
   @ApiResponse(responseCode = "404", description = "Task not found", content = @Content)
   @DeleteMapping("/{id}")
-  public ResponseEntity<Void> deleteTask(@PathVariable Long id) {
+  public ResponseEntity<Void> deleteTask(
+      @PathVariable Long id, @CurrentUser UserPrincipal currentUser) {
     logger.info("Deleting task with ID: {}", id);
-    Optional<Task> task = taskService.findById(id);
-    if (task.isPresent()) {
-      User currentUser = getCurrentUser();
-      if (currentUser.getRole() != Role.ADMIN
-          && !task.get().getUser().getId().equals(currentUser.getId())) {
-        logger.warn(
-            "Access denied: user {} trying to delete task {} of another user",
-            currentUser.getUsername(),
-            id);
-        return ResponseEntity.status(403).build();
-      }
-      taskService.deleteById(id);
+    Long ownerId = currentUser.isAdmin() ? null : currentUser.getId();
+    if (taskService.delete(id, ownerId)) {
       logger.info("Task deleted with ID: {}", id);
       return ResponseEntity.noContent().build();
-    } else {
-      logger.warn("Task not found with ID: {}", id);
-      return ResponseEntity.notFound().build();
     }
-  }
-
-  private User getCurrentUser() {
-    String username =
-        Objects.requireNonNull(SecurityContextHolder.getContext().getAuthentication()).getName();
-    return userService.findByUsername(username);
+    if (ownerId != null && taskService.existsById(id)) {
+      logger.warn(
+          "Access denied: user {} trying to delete task {} of another user",
+          currentUser.getUsername(),
+          id);
+      return ResponseEntity.status(403).build();
+    }
+    logger.warn("Task not found with ID: {}", id);
+    return ResponseEntity.notFound().build();
   }
 }
@@ -1,21 +1,21 @@
 package com.bedoyarama.busnau.controller;
 
+import com.bedoyarama.busnau.config.CurrentUser;
+import com.bedoyarama.busnau.config.UserPrincipal;
 import com.bedoyarama.busnau.entity.Role;
 import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.service.CursorPage;
 import com.bedoyarama.busnau.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
-import java.util.List;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -24,9 +24,16 @@ public class UserController {
 
   private static final Logger logger = LoggerFactory.getLogger(UserController.class);
   private final UserService userService;
+  private final int defaultPageSize;
+  private final int maxPageSize;
 
-  public UserController(UserService userService) {
+  public UserController(
+      UserService userService,
+      @Value("${pagination.default-page-size:50}") int defaultPageSize,
+      @Value("${pagination.max-page-size:200}") int maxPageSize) {
     this.userService = userService;
+    this.defaultPageSize = defaultPageSize;
+    this.maxPageSize = maxPageSize;
   }
 
   @Operation(summary = "Create a new user")
@@ -37,28 +44,22 @@ public class UserController {
           @Content(mediaType = "application/json", schema = @Schema(implementation = User.class)))
   @ApiResponse(responseCode = "400", description = "Invalid user input")
   @PostMapping
-  public ResponseEntity<User> createUser(@Valid @RequestBody CreateUserRequest request) {
+  public ResponseEntity<User> createUser(
+      @Valid @RequestBody CreateUserRequest request, @CurrentUser UserPrincipal currentUser) {
     logger.info("Creating user: {}", request.getUsername());
 
     User user = new User();
     user.setUsername(request.getUsername());
     user.setPassword(request.getPassword());
 
-    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-    boolean isAuthenticated =
-        authentication != null
-            && authentication.isAuthenticated()
-            && !"anonymousUser".equals(authentication.getName());
-
-    if (!isAuthenticated) {
+    if (currentUser == null) {
       // Unauthenticated user creation (registration) - force USER role
       user.setRole(Role.USER);
       logger.info("Unauthenticated user creation, setting role to USER");
     } else {
       // Authenticated user creation
-      String currentUsername = authentication.getName();
-      User currentUser = userService.findByUsername(currentUsername);
-      if (currentUser.getRole() == Role.ADMIN) {
+      String currentUsername = currentUser.getUsername();
+      if (currentUser.isAdmin()) {
         // ADMIN can create any role
         Role requestedRole =
             request.getRole() != null ? Role.valueOf(request.getRole().toUpperCase()) : Role.USER;
@@ -71,7 +72,7 @@ public class UserController {
       }
     }
 
-    User savedUser = userService.save(user);
+    User savedUser = userService.create(user);
     logger.info("User created with ID: {} and role: {}", savedUser.getId(), savedUser.getRole());
     return ResponseEntity.ok(savedUser);
   }
@@ -85,9 +86,10 @@ public class UserController {
   @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content)
   @ApiResponse(responseCode = "404", description = "User not found", content = @Content)
   @GetMapping("/{id}")
-  public ResponseEntity<User> getUserById(@PathVariable Long id) {
+  public ResponseEntity<User> getUserById(
+      @PathVariable Long id, @CurrentUser UserPrincipal currentUser) {
     logger.info("Fetching user by ID: {}", id);
-    if (isNotAdmin()) {
+    if (isNotAdmin(currentUser)) {
       logger.warn("Access denied: non-admin trying to fetch user by ID");
       return ResponseEntity.status(403).build();
     }
@@ -110,9 +112,10 @@ public class UserController {
   @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content)
   @ApiResponse(responseCode = "404", description = "User not found", content = @Content)
   @GetMapping("/username/{username}")
-  public ResponseEntity<User> getUserByUsername(@PathVariable String username) {
+  public ResponseEntity<User> getUserByUsername(
+      @PathVariable String username, @CurrentUser UserPrincipal currentUser) {
     logger.info("Fetching user by username: {}", username);
-    if (isNotAdmin()) {
+    if (isNotAdmin(currentUser)) {
       logger.warn("Access denied: non-admin trying to fetch user by username");
       return ResponseEntity.status(403).build();
     }
@@ -126,34 +129,40 @@ public class UserController {
     }
   }
 
-  @Operation(summary = "Get all users")
+  @Operation(summary = "Get all users, one page at a time")
   @ApiResponse(
       responseCode = "200",
-      description = "List of users",
+      description = "Page of users",
       content =
           @Content(
               mediaType = "application/json",
-              array = @ArraySchema(schema = @Schema(implementation = User.class))))
+              schema = @Schema(implementation = CursorPage.class)))
+  @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content)
   @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content)
   @GetMapping
-  public ResponseEntity<List<User>> getAllUsers() {
+  public ResponseEntity<CursorPage<User>> getAllUsers(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit,
+      @CurrentUser UserPrincipal currentUser) {
     logger.info("Fetching all users");
-    if (isNotAdmin()) {
+    if (isNotAdmin(currentUser)) {
       logger.warn("Access denied: non-admin trying to fetch all users");
       return ResponseEntity.status(403).build();
     }
-    List<User> users = userService.findAll();
-    logger.info("Retrieved {} users", users.size());
-    return ResponseEntity.ok(users);
+    CursorPage<User> page =
+        userService.findPage(cursor, CursorPage.pageSize(limit, defaultPageSize, maxPageSize));
+    logger.info("Retrieved {} users", page.items().size());
+    return ResponseEntity.ok(page);
   }
 
   @Operation(summary = "Delete a user by ID")
   @ApiResponse(responseCode = "204", description = "User deleted successfully")
   @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content)
   @DeleteMapping("/{id}")
-  public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
+  public ResponseEntity<Void> deleteUser(
+      @PathVariable Long id, @CurrentUser UserPrincipal currentUser) {
     logger.info("Deleting user with ID: {}", id);
-    if (isNotAdmin()) {
+    if (isNotAdmin(currentUser)) {
       logger.warn("Access denied: non-admin trying to delete user");
       return ResponseEntity.status(403).build();
     }
@@ -162,15 +171,27 @@ public class UserController {
     return ResponseEntity.noContent().build();
   }
 
-  private boolean isNotAdmin() {
-    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-    if (authentication != null
-        && authentication.isAuthenticated()
-        && !"anonymousUser".equals(authentication.getName())) {
-      String currentUsername = authentication.getName();
-      User currentUser = userService.findByUsername(currentUsername);
-      return currentUser.getRole() != Role.ADMIN;
+  @Operation(summary = "Log a user out of all sessions")
+  @ApiResponse(responseCode = "204", description = "All sessions revoked")
+  @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content)
+  @ApiResponse(responseCode = "404", description = "User not found", content = @Content)
+  @PostMapping("/{id}/logout")
+  public ResponseEntity<Void> forceLogout(
+      @PathVariable Long id, @CurrentUser UserPrincipal currentUser) {
+    logger.info("Revoking all sessions of user with ID: {}", id);
+    if (isNotAdmin(currentUser)) {
+      logger.warn("Access denied: non-admin trying to force logout");
+      return ResponseEntity.status(403).build();
+    }
+    if (!userService.revokeSessions(id, null)) {
+      logger.warn("User not found with ID: {}", id);
+      return ResponseEntity.notFound().build();
     }
-    return true;
+    logger.info("Sessions revoked for user with ID: {}", id);
+    return ResponseEntity.noContent().build();
+  }
+
+  private boolean isNotAdmin(UserPrincipal currentUser) {
+    return currentUser == null || !currentUser.isAdmin();
   }
 }
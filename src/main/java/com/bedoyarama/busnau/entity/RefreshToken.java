@@ -3,6 +3,7 @@ package com.bedoyarama.busnau.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.Instant;
+import java.util.UUID;
 import lombok.*;
 
 @Entity
@@ -15,11 +16,17 @@ import lombok.*;
 public class RefreshToken {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_tokens_id_seq")
+  @SequenceGenerator(
+      name = "refresh_tokens_id_seq",
+      sequenceName = "refresh_tokens_id_seq",
+      allocationSize = 50)
   private Long id;
 
-  @Column(nullable = false, unique = true)
-  private String token;
+  /** SHA-256 digest of the refresh token; the token itself is never stored. */
+  @Column(name = "token_hash", nullable = false, unique = true, length = 32)
+  @ToString.Exclude
+  private byte[] tokenHash;
 
   @Column(nullable = false)
   private Instant expiryDate;
@@ -27,6 +34,10 @@ public class RefreshToken {
   @Column(nullable = false)
   private boolean revoked = false;
 
+  /** Shared by every token rotated from the same login. */
+  @Column(name = "family_id", nullable = false)
+  private UUID familyId;
+
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "user_id", nullable = false)
   @ToString.Exclude
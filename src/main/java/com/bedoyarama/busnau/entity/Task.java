@@ -17,7 +17,8 @@ import org.hibernate.proxy.HibernateProxy;
 @AllArgsConstructor
 public class Task {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_id_seq")
+  @SequenceGenerator(name = "tasks_id_seq", sequenceName = "tasks_id_seq", allocationSize = 50)
   private Long id;
 
   @Column(nullable = false)
@@ -19,7 +19,8 @@ import org.hibernate.proxy.HibernateProxy;
 @AllArgsConstructor
 public class User {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+  @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
   private Long id;
 
   @Column(unique = true, nullable = false)
@@ -37,6 +38,14 @@ public class User {
   @Enumerated(EnumType.STRING)
   private Role role;
 
+  @Column(nullable = false)
+  @JsonIgnore
+  private int roleVersion = 0;
+
+  @Column(nullable = false)
+  @JsonIgnore
+  private int tokenEpoch = 0;
+
   @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
   @ToString.Exclude
   @JsonIgnore
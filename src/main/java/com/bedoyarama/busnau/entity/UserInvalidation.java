@@ -0,0 +1,30 @@
+package com.bedoyarama.busnau.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.*;
+
+@Entity
+@Table(name = "user_invalidations")
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@AllArgsConstructor
+public class UserInvalidation {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false, length = 36)
+  private String nodeId;
+
+  @Column(nullable = false)
+  private Long userId;
+
+  @Column private String username;
+
+  @Column(nullable = false)
+  private Instant createdAt;
+}
@@ -2,14 +2,42 @@ package com.bedoyarama.busnau.repository;
 
 import com.bedoyarama.busnau.entity.RefreshToken;
 import com.bedoyarama.busnau.entity.User;
+import jakarta.persistence.LockModeType;
 import java.util.Optional;
+import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
 
-  Optional<RefreshToken> findByToken(String token);
+  Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
+
+  /** Loads and row-locks a token, so concurrent refreshes of the same token serialize. */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT r FROM RefreshToken r WHERE r.tokenHash = :tokenHash")
+  Optional<RefreshToken> findByTokenHashForUpdate(@Param("tokenHash") byte[] tokenHash);
+
+  @Modifying
+  @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.familyId = :familyId")
+  int revokeFamily(@Param("familyId") UUID familyId);
+
+  /**
+   * Revokes the family of the given token only if that token is itself already revoked, i.e. it
+   * is being replayed. Returns 0 when the token is unknown or still active.
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE RefreshToken r SET r.revoked = true WHERE r.familyId = ("
+          + "SELECT r2.familyId FROM RefreshToken r2"
+          + " WHERE r2.tokenHash = :tokenHash AND r2.revoked = true)")
+  int revokeFamilyOfRevokedToken(@Param("tokenHash") byte[] tokenHash);
 
   @Modifying
+  @Transactional
   int deleteByUser(User user);
 }
@@ -1,17 +1,111 @@
 package com.bedoyarama.busnau.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import com.bedoyarama.busnau.entity.Task;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface TaskRepository extends JpaRepository<Task, Long> {
 
   List<Task> findByUser_Id(Long userId);
 
+  Optional<Task> findByIdAndUser_Id(Long id, Long userId);
+
   List<Task> findByCompleted(Boolean completed);
 
   List<Task> findByUser_IdAndDueDateBetween(Long userId, LocalDate start, LocalDate end);
 
   List<Task> findByUser_IdAndCompleted(Long userId, Boolean completed);
+
+  // Keyset pagination on (id)
+
+  List<Task> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+  List<Task> findByUser_IdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Limit limit);
+
+  // Keyset pagination on (dueDate, id); tasks without a due date are paged separately, by id
+
+  List<Task> findByDueDateNotNullOrderByDueDateAscIdAsc(Limit limit);
+
+  List<Task> findByUser_IdAndDueDateNotNullOrderByDueDateAscIdAsc(Long userId, Limit limit);
+
+  @Query(
+      "SELECT t FROM Task t WHERE t.dueDate >= :dueDate"
+          + " AND (t.dueDate > :dueDate OR t.id > :afterId) ORDER BY t.dueDate ASC, t.id ASC")
+  List<Task> pageByDueDateAfter(
+      @Param("dueDate") LocalDate dueDate, @Param("afterId") Long afterId, Limit limit);
+
+  @Query(
+      "SELECT t FROM Task t WHERE t.user.id = :userId AND t.dueDate >= :dueDate"
+          + " AND (t.dueDate > :dueDate OR t.id > :afterId) ORDER BY t.dueDate ASC, t.id ASC")
+  List<Task> pageByUserAndDueDateAfter(
+      @Param("userId") Long userId,
+      @Param("dueDate") LocalDate dueDate,
+      @Param("afterId") Long afterId,
+      Limit limit);
+
+  List<Task> findByDueDateIsNullAndIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+  List<Task> findByUser_IdAndDueDateIsNullAndIdGreaterThanOrderByIdAsc(
+      Long userId, Long afterId, Limit limit);
+
+  // Forward-only result streams for export; rows are fetched from the driver in chunks
+
+  @QueryHints({
+    @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HINT_READ_ONLY, value = "true")
+  })
+  @Query("SELECT t FROM Task t ORDER BY t.id ASC")
+  Stream<Task> streamAll();
+
+  @QueryHints({
+    @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HINT_READ_ONLY, value = "true")
+  })
+  @Query("SELECT t FROM Task t WHERE t.user.id = :userId ORDER BY t.id ASC")
+  Stream<Task> streamByUserId(@Param("userId") Long userId);
+
+  // Set-based bulk changes, always scoped to the owning user
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE Task t SET t.completed = true WHERE t.user.id = :userId AND t.id IN :ids")
+  int completeByIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM Task t WHERE t.user.id = :userId AND t.id IN :ids")
+  int deleteByIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+  @Modifying
+  @Transactional
+  @Query(
+      "DELETE FROM Task t WHERE t.user.id = :userId AND t.completed = true"
+          + " AND t.dueDate < :before")
+  int deleteCompletedDueBefore(@Param("userId") Long userId, @Param("before") LocalDate before);
+
+  // Single-row deletes that skip the SELECT deleteById issues first
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM Task t WHERE t.id = :id")
+  int deleteOne(@Param("id") Long id);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM Task t WHERE t.id = :id AND t.user.id = :userId")
+  int deleteOneOwnedBy(@Param("id") Long id, @Param("userId") Long userId);
 }
@@ -0,0 +1,17 @@
+package com.bedoyarama.busnau.repository;
+
+import com.bedoyarama.busnau.entity.UserInvalidation;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface UserInvalidationRepository extends JpaRepository<UserInvalidation, Long> {
+
+  List<UserInvalidation> findByCreatedAtAfterOrderByIdAsc(Instant cutoff);
+
+  @Modifying
+  @Transactional
+  int deleteByCreatedAtBefore(Instant cutoff);
+}
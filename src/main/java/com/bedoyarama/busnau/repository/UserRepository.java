@@ -1,9 +1,37 @@
 package com.bedoyarama.busnau.repository;
 
+import com.bedoyarama.busnau.entity.Role;
 import com.bedoyarama.busnau.entity.User;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
   User findByUsername(String username);
+
+  List<User> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+  @Query("SELECT u.role FROM User u WHERE u.id = :id")
+  Optional<Role> findRoleById(@Param("id") Long id);
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE User u SET u.password = :password WHERE u.id = :id")
+  int updatePassword(@Param("id") Long id, @Param("password") String password);
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE User u SET u.tokenEpoch = u.tokenEpoch + 1 WHERE u.id = :id")
+  int incrementTokenEpoch(@Param("id") Long id);
+
+  @Query(
+      "SELECT new com.bedoyarama.busnau.repository.UserVersions(u.roleVersion, u.tokenEpoch)"
+          + " FROM User u WHERE u.id = :id")
+  Optional<UserVersions> findVersionsById(@Param("id") Long id);
 }
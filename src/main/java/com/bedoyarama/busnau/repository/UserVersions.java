@@ -0,0 +1,4 @@
+package com.bedoyarama.busnau.repository;
+
+/** Per-user counters that are signed into access tokens and checked on every request. */
+public record UserVersions(int roleVersion, int tokenEpoch) {}
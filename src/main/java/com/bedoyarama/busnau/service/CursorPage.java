@@ -0,0 +1,29 @@
+package com.bedoyarama.busnau.service;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextCursor} is {@code null} on the last page;
+ * otherwise it is passed back unchanged to fetch the page that follows.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+  /**
+   * Builds a page from a query that fetched up to {@code limit + 1} rows; the extra row only
+   * signals that another page exists and is not returned.
+   */
+  static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, String> cursorOf) {
+    if (fetched.size() <= limit) {
+      return new CursorPage<>(fetched, null);
+    }
+    List<T> items = fetched.subList(0, limit);
+    return new CursorPage<>(List.copyOf(items), cursorOf.apply(items.get(limit - 1)));
+  }
+
+  /** Clamps a requested page size to {@code [1, max]}, using {@code fallback} when absent. */
+  public static int pageSize(Integer requested, int fallback, int max) {
+    int size = requested != null ? requested : fallback;
+    return Math.max(1, Math.min(size, max));
+  }
+}
@@ -0,0 +1,9 @@
+package com.bedoyarama.busnau.service;
+
+/** Thrown when a pagination cursor cannot be decoded or belongs to a different ordering. */
+public class InvalidCursorException extends RuntimeException {
+
+  public InvalidCursorException(String message) {
+    super(message);
+  }
+}
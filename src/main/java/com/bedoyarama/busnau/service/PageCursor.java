@@ -0,0 +1,42 @@
+package com.bedoyarama.busnau.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a page. Encoded as an opaque base64url token that also records
+ * which ordering it was issued for, so a cursor cannot be replayed against another listing.
+ */
+record PageCursor(LocalDate dueDate, long id) {
+
+  static PageCursor afterId(long id) {
+    return new PageCursor(null, id);
+  }
+
+  String encode(String kind) {
+    String raw = kind + ":" + (dueDate != null ? dueDate : "") + ":" + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /** Returns {@code null} for a missing cursor, i.e. the first page. */
+  static PageCursor decode(String cursor, String kind) {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+      String[] parts = raw.split(":", -1);
+      if (parts.length != 3 || !parts[0].equals(kind)) {
+        throw new InvalidCursorException("Cursor does not belong to this listing");
+      }
+      LocalDate dueDate = parts[1].isEmpty() ? null : LocalDate.parse(parts[1]);
+      return new PageCursor(dueDate, Long.parseLong(parts[2]));
+    } catch (IllegalArgumentException | DateTimeException e) {
+      throw new InvalidCursorException("Malformed cursor");
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.bedoyarama.busnau.service;
+
+import com.bedoyarama.busnau.config.TokenDigest;
+import com.bedoyarama.busnau.entity.RefreshToken;
+import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.repository.RefreshTokenRepository;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Issues and rotates refresh tokens. Every refresh revokes the presented token and issues a new
+ * one in the same family; presenting an already rotated token is treated as theft and revokes the
+ * whole family.
+ */
+@Service
+public class RefreshTokenService {
+
+  private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+  public enum Outcome {
+    ROTATED,
+    REUSED,
+    EXPIRED,
+    NOT_FOUND
+  }
+
+  private final RefreshTokenRepository refreshTokenRepository;
+  private final RevokedTokenFilter revokedTokenFilter;
+  private final RefreshTokenWriter refreshTokenWriter;
+  private final Executor executor;
+
+  /**
+   * Result of {@link #rotate}. {@code user} and {@code refreshToken} are only set when the token
+   * was rotated: the owner of the locked row and its newly issued successor.
+   */
+  public record Rotation(Outcome outcome, User user, String refreshToken) {
+
+    static Rotation rejected(Outcome outcome) {
+      return new Rotation(outcome, null, null);
+    }
+  }
+
+  public RefreshTokenService(
+      RefreshTokenRepository refreshTokenRepository,
+      RevokedTokenFilter revokedTokenFilter,
+      RefreshTokenWriter refreshTokenWriter,
+      @Qualifier("applicationTaskExecutor") Executor executor) {
+    this.refreshTokenRepository = refreshTokenRepository;
+    this.revokedTokenFilter = revokedTokenFilter;
+    this.refreshTokenWriter = refreshTokenWriter;
+    this.executor = executor;
+  }
+
+  /**
+   * Stores the first token of a new family, on login. Goes through the batching writer and
+   * returns once the row is committed.
+   */
+  public void issue(Long userId, byte[] tokenHash, Instant expiryDate) {
+    refreshTokenWriter.write(userId, tokenHash, UUID.randomUUID(), expiryDate);
+  }
+
+  /**
+   * Cheap replay check for the refresh endpoint, answered from the revocation filter alone. A hit
+   * rejects the request without touching the database; the token's family is revoked in the
+   * background, and only if the token really is revoked, so a filter false positive costs the
+   * client a login but never revokes a live family.
+   */
+  public boolean revokeFamilyIfReplayed(byte[] tokenHash) {
+    if (!revokedTokenFilter.mightContain(tokenHash)) {
+      return false;
+    }
+    try {
+      executor.execute(() -> revokeFamilyOfRevokedToken(tokenHash));
+    } catch (RuntimeException e) {
+      logger.warn("Could not schedule family revocation for a replayed refresh token", e);
+    }
+    return true;
+  }
+
+  private void revokeFamilyOfRevokedToken(byte[] tokenHash) {
+    try {
+      if (refreshTokenRepository.revokeFamilyOfRevokedToken(tokenHash) > 0) {
+        logger.warn("Revoked refresh token presented again, family revoked");
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Failed to revoke the family of a replayed refresh token", e);
+    }
+  }
+
+  /**
+   * Atomically revokes the presented token and stores its successor, minted by {@code successor}
+   * for the owner of the locked row. The presented row is locked, so of two concurrent refreshes
+   * with the same token only one rotates; the other sees a revoked token and revokes the family.
+   */
+  @Transactional
+  public Rotation rotate(
+      byte[] presentedHash, Function<User, String> successor, Instant newExpiryDate) {
+    RefreshToken current =
+        refreshTokenRepository.findByTokenHashForUpdate(presentedHash).orElse(null);
+    if (current == null) {
+      return Rotation.rejected(Outcome.NOT_FOUND);
+    }
+    if (current.isRevoked()) {
+      refreshTokenRepository.revokeFamily(current.getFamilyId());
+      logger.warn("Revoked refresh token presented again, family revoked");
+      return Rotation.rejected(Outcome.REUSED);
+    }
+    if (current.isExpired()) {
+      return Rotation.rejected(Outcome.EXPIRED);
+    }
+    current.setRevoked(true);
+    User user = current.getUser();
+    String refreshToken = successor.apply(user);
+    refreshTokenRepository.save(
+        newToken(user, TokenDigest.sha256(refreshToken), current.getFamilyId(), newExpiryDate));
+    revokedTokenFilter.add(presentedHash);
+    return new Rotation(Outcome.ROTATED, user, refreshToken);
+  }
+
+  private static RefreshToken newToken(
+      User user, byte[] tokenHash, UUID familyId, Instant expiryDate) {
+    RefreshToken token = new RefreshToken();
+    token.setTokenHash(tokenHash);
+    token.setUser(user);
+    token.setFamilyId(familyId);
+    token.setExpiryDate(expiryDate);
+    return token;
+  }
+}
@@ -0,0 +1,127 @@
+package com.bedoyarama.busnau.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically deletes expired refresh tokens in bounded batches, so each delete holds its locks
+ * briefly. Revoked tokens are kept until they expire so that replaying a rotated token can still be
+ * detected. On PostgreSQL a session advisory lock makes sure only one node sweeps at a time; the
+ * other nodes skip the run.
+ */
+@Component
+public class RefreshTokenSweeper {
+
+  private static final Logger logger = LoggerFactory.getLogger(RefreshTokenSweeper.class);
+
+  /** Advisory lock key shared by all nodes ("busnau" + sweeper id). */
+  static final long LOCK_KEY = 0x6275736e61750001L;
+
+  static final String DELETE_BATCH =
+      "DELETE FROM refresh_tokens WHERE id IN ("
+          + "SELECT id FROM refresh_tokens WHERE expiry_date < ? LIMIT ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final boolean enabled;
+  private final int batchSize;
+  private final int maxBatches;
+  private final Counter purged;
+  private final DistributionSummary purgedPerRun;
+
+  public RefreshTokenSweeper(
+      JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${refresh-tokens.sweeper.enabled:true}") boolean enabled,
+      @Value("${refresh-tokens.sweeper.batch-size:1000}") int batchSize,
+      @Value("${refresh-tokens.sweeper.max-batches:100}") int maxBatches) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.maxBatches = maxBatches;
+    this.purged =
+        Counter.builder("refresh_tokens.sweeper.purged")
+            .description("Refresh tokens deleted by the sweeper")
+            .register(meterRegistry);
+    this.purgedPerRun =
+        DistributionSummary.builder("refresh_tokens.sweeper.purged.per.run")
+            .description("Refresh tokens deleted per sweeper run")
+            .register(meterRegistry);
+  }
+
+  @Scheduled(
+      initialDelayString = "${refresh-tokens.sweeper.initial-delay:PT1M}",
+      fixedDelayString = "${refresh-tokens.sweeper.interval:PT10M}")
+  public void scheduledSweep() {
+    if (enabled) {
+      sweep();
+    }
+  }
+
+  /**
+   * Runs one sweep on a single connection.
+   *
+   * @return rows deleted, or -1 if another node holds the sweeper lock
+   */
+  public int sweep() {
+    Integer deleted = jdbcTemplate.execute((ConnectionCallback<Integer>) this::sweepOn);
+    int total = deleted != null ? deleted : -1;
+    if (total >= 0) {
+      purgedPerRun.record(total);
+      if (total > 0) {
+        logger.info("Refresh token sweeper deleted {} rows", total);
+      }
+    }
+    return total;
+  }
+
+  private Integer sweepOn(Connection connection) throws SQLException {
+    boolean postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+    if (postgres && !advisoryLock(connection, "SELECT pg_try_advisory_lock(?)")) {
+      logger.debug("Refresh token sweep skipped, another node holds the lock");
+      return -1;
+    }
+    try {
+      int total = 0;
+      try (PreparedStatement delete = connection.prepareStatement(DELETE_BATCH)) {
+        for (int batch = 0; batch < maxBatches; batch++) {
+          delete.setTimestamp(1, Timestamp.from(Instant.now()));
+          delete.setInt(2, batchSize);
+          int rows = delete.executeUpdate();
+          total += rows;
+          purged.increment(rows);
+          if (rows < batchSize) {
+            break;
+          }
+        }
+      }
+      return total;
+    } finally {
+      if (postgres) {
+        advisoryLock(connection, "SELECT pg_advisory_unlock(?)");
+      }
+    }
+  }
+
+  private boolean advisoryLock(Connection connection, String sql) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setLong(1, LOCK_KEY);
+      try (ResultSet rs = statement.executeQuery()) {
+        return rs.next() && rs.getBoolean(1);
+      }
+    }
+  }
+}
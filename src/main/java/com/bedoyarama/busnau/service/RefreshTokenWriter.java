@@ -0,0 +1,210 @@
+package com.bedoyarama.busnau.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind queue for new refresh tokens. Logins enqueue their row and wait; a single flusher
+ * thread inserts whatever has accumulated as one JDBC batch in one transaction, once {@code
+ * batch-size} rows are pending or {@code max-delay} has passed. Callers return only after their
+ * batch has committed, so a login burst costs one commit per batch instead of one per login. When
+ * the queue is full the row is written inline by the caller.
+ */
+@Component
+public class RefreshTokenWriter implements SmartLifecycle {
+
+  private static final Logger logger = LoggerFactory.getLogger(RefreshTokenWriter.class);
+
+  static final String INSERT =
+      "INSERT INTO refresh_tokens (id, token_hash, expiry_date, revoked, family_id, user_id)"
+          + " VALUES (?, ?, ?, FALSE, ?, ?)";
+
+  private record PendingToken(
+      Long userId,
+      byte[] tokenHash,
+      UUID familyId,
+      Instant expiryDate,
+      CompletableFuture<Void> stored) {}
+
+  private final JdbcTemplate jdbcTemplate;
+  private final SequenceIdAllocator idAllocator;
+  private final TransactionTemplate transactionTemplate;
+  private final BlockingQueue<PendingToken> queue;
+  private final int batchSize;
+  private final Duration maxDelay;
+  private final Duration ackTimeout;
+  private final DistributionSummary batchSizes;
+  private final Counter overflow;
+
+  private volatile boolean running;
+  private Thread flusher;
+
+  public RefreshTokenWriter(
+      JdbcTemplate jdbcTemplate,
+      SequenceIdAllocator idAllocator,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${refresh-tokens.writer.queue-capacity:10000}") int queueCapacity,
+      @Value("${refresh-tokens.writer.batch-size:200}") int batchSize,
+      @Value("${refresh-tokens.writer.max-delay:5ms}") Duration maxDelay,
+      @Value("${refresh-tokens.writer.ack-timeout:5s}") Duration ackTimeout) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.idAllocator = idAllocator;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.batchSize = batchSize;
+    this.maxDelay = maxDelay;
+    this.ackTimeout = ackTimeout;
+    this.batchSizes =
+        DistributionSummary.builder("refresh_tokens.writer.batch.size")
+            .description("Refresh tokens inserted per batch")
+            .register(meterRegistry);
+    this.overflow =
+        Counter.builder("refresh_tokens.writer.overflow")
+            .description("Refresh tokens written inline because the queue was full")
+            .register(meterRegistry);
+    Gauge.builder("refresh_tokens.writer.queue.depth", queue, BlockingQueue::size)
+        .description("Refresh tokens waiting to be written")
+        .register(meterRegistry);
+  }
+
+  /** Stores a new, unrevoked refresh token and returns once it has been committed. */
+  public void write(Long userId, byte[] tokenHash, UUID familyId, Instant expiryDate) {
+    PendingToken pending =
+        new PendingToken(userId, tokenHash, familyId, expiryDate, new CompletableFuture<>());
+    if (!running || !queue.offer(pending)) {
+      overflow.increment();
+      insert(List.of(pending));
+      return;
+    }
+    try {
+      pending.stored().get(ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Refresh token could not be stored", e.getCause());
+    } catch (TimeoutException e) {
+      throw new IllegalStateException("Timed out waiting for refresh token to be stored", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while storing refresh token", e);
+    }
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    flusher = new Thread(this::flushLoop, "refresh-token-writer");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (flusher != null) {
+      try {
+        // Let the flusher drain rows whose callers are still waiting
+        flusher.join(ackTimeout.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  private void flushLoop() {
+    List<PendingToken> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingToken first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelay.toNanos();
+        while (batch.size() < batchSize) {
+          queue.drainTo(batch, batchSize - batch.size());
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= batchSize || remaining <= 0) {
+            break;
+          }
+          PendingToken next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        insert(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (RuntimeException e) {
+        logger.error("Refresh token batch of {} rows failed: {}", batch.size(), e.getMessage());
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void insert(List<PendingToken> batch) {
+    try {
+      long[] ids = idAllocator.next("refresh_tokens_id_seq", batch.size());
+      transactionTemplate.executeWithoutResult(
+          status ->
+              jdbcTemplate.batchUpdate(
+                  INSERT,
+                  new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                      PendingToken token = batch.get(i);
+                      ps.setLong(1, ids[i]);
+                      ps.setBytes(2, token.tokenHash());
+                      ps.setTimestamp(3, Timestamp.from(token.expiryDate()));
+                      ps.setObject(4, token.familyId());
+                      ps.setLong(5, token.userId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                      return batch.size();
+                    }
+                  }));
+    } catch (RuntimeException e) {
+      batch.forEach(token -> token.stored().completeExceptionally(e));
+      throw e;
+    }
+    batchSizes.record(batch.size());
+    batch.forEach(token -> token.stored().complete(null));
+  }
+}
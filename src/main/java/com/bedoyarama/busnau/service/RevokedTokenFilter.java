@@ -0,0 +1,107 @@
+package com.bedoyarama.busnau.service;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lock-free Bloom filter over the digests of revoked refresh tokens. A miss means the token was
+ * certainly not revoked on this node since the last rebuild; a hit means it probably was, and the
+ * refresh endpoint rejects it without asking the database, which is why the false-positive rate
+ * defaults low. It is rebuilt from {@code refresh_tokens} at startup and periodically, which also
+ * picks up tokens revoked by other nodes.
+ */
+@Component
+public class RevokedTokenFilter {
+
+  private static final Logger logger = LoggerFactory.getLogger(RevokedTokenFilter.class);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final long expectedInsertions;
+  private final double falsePositiveRate;
+  private volatile Bits bits;
+
+  public RevokedTokenFilter(
+      JdbcTemplate jdbcTemplate,
+      @Value("${refresh-tokens.revocation-filter.expected-insertions:1000000}")
+          long expectedInsertions,
+      @Value("${refresh-tokens.revocation-filter.false-positive-rate:0.0001}")
+          double falsePositiveRate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.expectedInsertions = expectedInsertions;
+    this.falsePositiveRate = falsePositiveRate;
+    this.bits = new Bits(expectedInsertions, falsePositiveRate);
+  }
+
+  /** Records the SHA-256 digest of a revoked token. */
+  public void add(byte[] digest) {
+    bits.add(digest);
+  }
+
+  public boolean mightContain(byte[] digest) {
+    return bits.mightContain(digest);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(
+      initialDelayString = "${refresh-tokens.revocation-filter.rebuild-interval:PT6H}",
+      fixedDelayString = "${refresh-tokens.revocation-filter.rebuild-interval:PT6H}")
+  public void rebuild() {
+    Bits rebuilt = new Bits(expectedInsertions, falsePositiveRate);
+    long[] count = {0};
+    jdbcTemplate.query(
+        "SELECT token_hash FROM refresh_tokens WHERE revoked = TRUE",
+        rs -> {
+          rebuilt.add(rs.getBytes(1));
+          count[0]++;
+        });
+    bits = rebuilt;
+    logger.info("Revoked refresh token filter rebuilt with {} entries", count[0]);
+  }
+
+  private static final class Bits {
+
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int numHashes;
+
+    Bits(long expectedInsertions, double falsePositiveRate) {
+      long n = Math.max(1, expectedInsertions);
+      long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+      this.numBits = Math.max(64, m);
+      this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+      this.words = new AtomicLongArray((int) ((numBits + 63) / 64));
+    }
+
+    void add(byte[] digest) {
+      ByteBuffer buffer = ByteBuffer.wrap(digest);
+      long h1 = buffer.getLong(0);
+      long h2 = buffer.getLong(8) | 1;
+      for (int i = 0; i < numHashes; i++) {
+        long index = Math.floorMod(h1 + i * h2, numBits);
+        long mask = 1L << (index & 63);
+        words.accumulateAndGet((int) (index >>> 6), mask, (word, bit) -> word | bit);
+      }
+    }
+
+    boolean mightContain(byte[] digest) {
+      ByteBuffer buffer = ByteBuffer.wrap(digest);
+      long h1 = buffer.getLong(0);
+      long h2 = buffer.getLong(8) | 1;
+      for (int i = 0; i < numHashes; i++) {
+        long index = Math.floorMod(h1 + i * h2, numBits);
+        if ((words.get((int) (index >>> 6)) & (1L << (index & 63))) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.bedoyarama.busnau.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out ids for plain-JDBC inserts from the entities' sequences, in the same blocks as
+ * Hibernate's pooled optimizer. The sequences are incremented by {@link #BLOCK_SIZE}, so a value
+ * {@code v} read from one reserves {@code v - 49 .. v} for whoever read it: rows written here take
+ * one sequence read per 50 ids instead of burning 50 ids each, and can never land in a block
+ * Hibernate has reserved. V12 moves the sequences past their initial value, which Hibernate would
+ * otherwise merge with the following read into one larger block.
+ */
+@Component
+public class SequenceIdAllocator {
+
+  /** The {@code allocationSize} of the entities' sequence generators and the V11 increment. */
+  static final int BLOCK_SIZE = 50;
+
+  private static final class Block {
+    long next = 1;
+    long last = 0;
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+  private volatile String nextValueSql;
+
+  public SequenceIdAllocator(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /** Returns {@code count} ids from {@code sequence} that no other writer will use. */
+  public long[] next(String sequence, int count) {
+    Block block = blocks.computeIfAbsent(sequence, name -> new Block());
+    long[] ids = new long[count];
+    synchronized (block) {
+      for (int i = 0; i < count; i++) {
+        if (block.next > block.last) {
+          long value = read(sequence);
+          block.last = value;
+          // A schema that never went through V12 may still return values below one block
+          block.next = Math.max(1, value - BLOCK_SIZE + 1);
+        }
+        ids[i] = block.next++;
+      }
+    }
+    return ids;
+  }
+
+  private long read(String sequence) {
+    String sql = nextValueSql;
+    if (sql == null) {
+      sql =
+          jdbcTemplate.execute(
+              (ConnectionCallback<String>)
+                  connection ->
+                      "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())
+                          ? "SELECT nextval('%s')"
+                          : "SELECT NEXT VALUE FOR %s");
+      nextValueSql = sql;
+    }
+    Long value = jdbcTemplate.queryForObject(sql.formatted(sequence), Long.class);
+    if (value == null) {
+      throw new IllegalStateException("Sequence " + sequence + " returned no value");
+    }
+    return value;
+  }
+}
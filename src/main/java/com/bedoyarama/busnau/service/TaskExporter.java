@@ -0,0 +1,150 @@
+package com.bedoyarama.busnau.service;
+
+import com.bedoyarama.busnau.entity.Task;
+import com.bedoyarama.busnau.repository.TaskRepository;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Writes tasks to an output stream straight from a forward-only result stream. Each row is
+ * detached once written, so the persistence context, and with it the heap, stays the same size
+ * however many tasks are exported.
+ */
+@Service
+public class TaskExporter {
+
+  public enum Format {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    Format(String contentType, String extension) {
+      this.contentType = contentType;
+      this.extension = extension;
+    }
+
+    public String contentType() {
+      return contentType;
+    }
+
+    public String extension() {
+      return extension;
+    }
+
+    public static Format fromParam(String value) {
+      try {
+        return valueOf(value.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new UnsupportedExportFormatException(value);
+      }
+    }
+  }
+
+  /** Exported shape of a task; unlike the entity it carries the owning user's id. */
+  record Row(
+      Long id,
+      String title,
+      String description,
+      LocalDate dueDate,
+      Boolean completed,
+      Long userId) {
+
+    static Row of(Task task) {
+      // The id of a lazy association is read from the proxy without loading the user
+      Long userId = task.getUser() != null ? task.getUser().getId() : null;
+      return new Row(
+          task.getId(),
+          task.getTitle(),
+          task.getDescription(),
+          task.getDueDate(),
+          task.getCompleted(),
+          userId);
+    }
+  }
+
+  static final String CSV_HEADER = "id,title,description,dueDate,completed,userId";
+
+  private final TaskRepository taskRepository;
+  private final EntityManager entityManager;
+  private final JsonMapper jsonMapper;
+
+  public TaskExporter(
+      TaskRepository taskRepository, EntityManager entityManager, JsonMapper jsonMapper) {
+    this.taskRepository = taskRepository;
+    this.entityManager = entityManager;
+    this.jsonMapper = jsonMapper;
+  }
+
+  /**
+   * Exports all tasks, or only those of {@code userId} when it is not {@code null}, and returns
+   * the number of rows written. The caller owns {@code out}; it is flushed but not closed.
+   */
+  @Transactional(readOnly = true)
+  public long export(Long userId, Format format, OutputStream out) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    long rows = 0;
+    try (Stream<Task> tasks =
+        userId == null ? taskRepository.streamAll() : taskRepository.streamByUserId(userId)) {
+      if (format == Format.CSV) {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+      }
+      Iterator<Task> iterator = tasks.iterator();
+      while (iterator.hasNext()) {
+        Task task = iterator.next();
+        Row row = Row.of(task);
+        entityManager.detach(task);
+        if (format == Format.CSV) {
+          writeCsv(writer, row);
+        } else {
+          writer.write(jsonMapper.writeValueAsString(row));
+        }
+        writer.write('\n');
+        rows++;
+      }
+    }
+    writer.flush();
+    return rows;
+  }
+
+  private static void writeCsv(Writer writer, Row row) throws IOException {
+    writer.write(String.valueOf(row.id()));
+    writer.write(',');
+    writer.write(csvField(row.title()));
+    writer.write(',');
+    writer.write(csvField(row.description()));
+    writer.write(',');
+    writer.write(row.dueDate() != null ? row.dueDate().toString() : "");
+    writer.write(',');
+    writer.write(row.completed() != null ? row.completed().toString() : "");
+    writer.write(',');
+    writer.write(row.userId() != null ? row.userId().toString() : "");
+  }
+
+  // RFC 4180: quote fields containing separators, quotes or line breaks; double inner quotes
+  static String csvField(String value) {
+    if (value == null) {
+      return "";
+    }
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+  }
+}
@@ -0,0 +1,333 @@
+package com.bedoyarama.busnau.service;
+
+import com.bedoyarama.busnau.controller.CreateTaskRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Bulk import of tasks from NDJSON. The body is parsed one line at a time and each row is
+ * validated like a {@code POST /api/tasks} request; valid rows are loaded in batches with {@code
+ * COPY ... FROM STDIN} on Postgres and multi-row inserts elsewhere, one transaction per batch.
+ * Invalid rows, and the rows of a batch the database rejects, are reported by line number without
+ * stopping the import.
+ */
+@Service
+public class TaskImporter {
+
+  private static final Logger logger = LoggerFactory.getLogger(TaskImporter.class);
+
+  static final String COPY =
+      "COPY tasks (id, title, description, due_date, completed, user_id)"
+          + " FROM STDIN WITH (FORMAT csv)";
+  static final String INSERT =
+      "INSERT INTO tasks (id, title, description, due_date, completed, user_id) VALUES ";
+  static final int ROWS_PER_INSERT = 100;
+
+  public record RowError(long line, String message) {}
+
+  public record ImportResult(
+      long rows,
+      long imported,
+      long failed,
+      List<RowError> errors,
+      long elapsedMillis,
+      double rowsPerSecond) {}
+
+  private record PendingRow(
+      long line,
+      String title,
+      String description,
+      LocalDate dueDate,
+      boolean completed,
+      long userId) {}
+
+  private final JdbcTemplate jdbcTemplate;
+  private final SequenceIdAllocator idAllocator;
+  private final TransactionTemplate transactionTemplate;
+  private final JsonMapper jsonMapper;
+  private final Validator validator;
+  private final int batchSize;
+  private final int maxLineLength;
+  private final int maxReportedErrors;
+
+  public TaskImporter(
+      JdbcTemplate jdbcTemplate,
+      SequenceIdAllocator idAllocator,
+      PlatformTransactionManager transactionManager,
+      JsonMapper jsonMapper,
+      Validator validator,
+      @Value("${tasks.import.batch-size:5000}") int batchSize,
+      @Value("${tasks.import.max-line-length:65536}") int maxLineLength,
+      @Value("${tasks.import.max-reported-errors:1000}") int maxReportedErrors) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.idAllocator = idAllocator;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.jsonMapper = jsonMapper;
+    this.validator = validator;
+    this.batchSize = batchSize;
+    this.maxLineLength = maxLineLength;
+    this.maxReportedErrors = maxReportedErrors;
+  }
+
+  /**
+   * Imports every row of {@code in} for {@code ownerId}. When {@code allowOwnerOverride} is set a
+   * row may name another, existing owner in its {@code userId} field; otherwise the field is
+   * ignored, as it is for single task creation.
+   */
+  public ImportResult importTasks(InputStream in, Long ownerId, boolean allowOwnerOverride)
+      throws IOException {
+    long start = System.nanoTime();
+    LineReader lines =
+        new LineReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    Map<Long, Boolean> knownOwners = new HashMap<>();
+    List<PendingRow> batch = new ArrayList<>(batchSize);
+    List<RowError> errors = new ArrayList<>();
+    long rows = 0;
+    long imported = 0;
+    long failed = 0;
+    long lineNumber = 0;
+    String line;
+    while ((line = lines.next()) != null) {
+      lineNumber++;
+      if (!lines.truncated() && line.isBlank()) {
+        continue;
+      }
+      rows++;
+      String error;
+      if (lines.truncated()) {
+        error = "Row exceeds " + maxLineLength + " characters";
+      } else {
+        error = parse(line, lineNumber, ownerId, allowOwnerOverride, knownOwners, batch);
+      }
+      if (error != null) {
+        failed++;
+        report(errors, new RowError(lineNumber, error));
+      } else if (batch.size() >= batchSize) {
+        long loaded = flush(batch, errors);
+        imported += loaded;
+        failed += batch.size() - loaded;
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      long loaded = flush(batch, errors);
+      imported += loaded;
+      failed += batch.size() - loaded;
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    double rowsPerSecond = elapsedNanos > 0 ? imported * 1e9 / elapsedNanos : 0;
+    logger.info(
+        "Imported {} of {} task rows in {} ms ({} rows/s)",
+        imported,
+        rows,
+        elapsedNanos / 1_000_000,
+        Math.round(rowsPerSecond));
+    return new ImportResult(
+        rows, imported, failed, List.copyOf(errors), elapsedNanos / 1_000_000, rowsPerSecond);
+  }
+
+  // Returns the reason the row was rejected, or null once it has been added to the batch
+  private String parse(
+      String line,
+      long lineNumber,
+      Long ownerId,
+      boolean allowOwnerOverride,
+      Map<Long, Boolean> knownOwners,
+      List<PendingRow> batch) {
+    CreateTaskRequest request;
+    try {
+      request = jsonMapper.readValue(line, CreateTaskRequest.class);
+    } catch (JacksonException e) {
+      return "Malformed JSON: " + e.getOriginalMessage();
+    }
+    if (request == null) {
+      return "Row is not a JSON object";
+    }
+    Set<ConstraintViolation<CreateTaskRequest>> violations = validator.validate(request);
+    if (!violations.isEmpty()) {
+      return violations.stream()
+          .map(ConstraintViolation::getMessage)
+          .sorted()
+          .collect(Collectors.joining("; "));
+    }
+    long userId = ownerId;
+    if (allowOwnerOverride && request.getUserId() != null) {
+      userId = request.getUserId();
+      if (!knownOwners.computeIfAbsent(userId, this::userExists)) {
+        return "User not found: " + userId;
+      }
+    }
+    batch.add(
+        new PendingRow(
+            lineNumber,
+            request.getTitle(),
+            request.getDescription(),
+            request.getDueDate(),
+            Boolean.TRUE.equals(request.getCompleted()),
+            userId));
+    return null;
+  }
+
+  private boolean userExists(Long id) {
+    Integer count =
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, id);
+    return count != null && count > 0;
+  }
+
+  private void report(List<RowError> errors, RowError error) {
+    if (errors.size() < maxReportedErrors) {
+      errors.add(error);
+    }
+  }
+
+  // Loads one batch in its own transaction; a rejected batch fails all of its rows
+  private long flush(List<PendingRow> batch, List<RowError> errors) {
+    try {
+      long[] ids = idAllocator.next("tasks_id_seq", batch.size());
+      Long loaded =
+          transactionTemplate.execute(
+              status ->
+                  jdbcTemplate.execute(
+                      (ConnectionCallback<Long>)
+                          connection ->
+                              connection.isWrapperFor(PGConnection.class)
+                                  ? copy(connection.unwrap(PGConnection.class), batch, ids)
+                                  : insert(connection, batch, ids)));
+      return loaded != null ? loaded : 0;
+    } catch (RuntimeException e) {
+      logger.warn(
+          "Task import batch of lines {}-{} failed: {}",
+          batch.getFirst().line(),
+          batch.getLast().line(),
+          e.getMessage());
+      batch.forEach(
+          row -> report(errors, new RowError(row.line(), "Batch rejected by the database")));
+      return 0;
+    }
+  }
+
+  private static long copy(PGConnection connection, List<PendingRow> batch, long[] ids)
+      throws SQLException {
+    StringBuilder csv = new StringBuilder(batch.size() * 64);
+    for (int i = 0; i < batch.size(); i++) {
+      PendingRow row = batch.get(i);
+      csv.append(ids[i]).append(',');
+      csv.append(quote(row.title())).append(',');
+      csv.append(quote(row.description())).append(',');
+      csv.append(row.dueDate() != null ? row.dueDate().toString() : "").append(',');
+      csv.append(row.completed()).append(',');
+      csv.append(row.userId()).append('\n');
+    }
+    try {
+      return connection.getCopyAPI().copyIn(COPY, new StringReader(csv.toString()));
+    } catch (IOException e) {
+      throw new SQLException("COPY of task rows failed", e);
+    }
+  }
+
+  // In COPY's CSV format an unquoted empty field is NULL, so every present value is quoted
+  private static String quote(String value) {
+    return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private static long insert(Connection connection, List<PendingRow> batch, long[] ids)
+      throws SQLException {
+    long inserted = 0;
+    for (int from = 0; from < batch.size(); from += ROWS_PER_INSERT) {
+      List<PendingRow> chunk = batch.subList(from, Math.min(from + ROWS_PER_INSERT, batch.size()));
+      StringBuilder sql = new StringBuilder(INSERT);
+      for (int i = 0; i < chunk.size(); i++) {
+        sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?)");
+      }
+      try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+        int index = 1;
+        for (int i = 0; i < chunk.size(); i++) {
+          PendingRow row = chunk.get(i);
+          statement.setLong(index++, ids[from + i]);
+          statement.setString(index++, row.title());
+          statement.setString(index++, row.description());
+          if (row.dueDate() != null) {
+            statement.setObject(index++, row.dueDate());
+          } else {
+            statement.setNull(index++, Types.DATE);
+          }
+          statement.setBoolean(index++, row.completed());
+          statement.setLong(index++, row.userId());
+        }
+        inserted += statement.executeUpdate();
+      }
+    }
+    return inserted;
+  }
+
+  /** Reads lines of at most {@code maxLineLength} characters; longer lines are cut short. */
+  private final class LineReader {
+
+    private final Reader reader;
+    private final StringBuilder line = new StringBuilder();
+    private boolean truncated;
+
+    LineReader(Reader reader) {
+      this.reader = reader;
+    }
+
+    String next() throws IOException {
+      line.setLength(0);
+      truncated = false;
+      boolean read = false;
+      int c;
+      while ((c = reader.read()) != -1) {
+        read = true;
+        if (c == '\n') {
+          break;
+        }
+        if (line.length() < maxLineLength) {
+          line.append((char) c);
+        } else {
+          truncated = true;
+        }
+      }
+      if (!read) {
+        return null;
+      }
+      int end = line.length();
+      if (end > 0 && line.charAt(end - 1) == '\r') {
+        end--;
+      }
+      return line.substring(0, end);
+    }
+
+    boolean truncated() {
+      return truncated;
+    }
+  }
+}
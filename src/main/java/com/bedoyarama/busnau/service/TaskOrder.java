@@ -0,0 +1,28 @@
+package com.bedoyarama.busnau.service;
+
+import java.util.Locale;
+
+/** Orderings supported by keyset pagination of tasks; each has its own cursor kind. */
+public enum TaskOrder {
+  ID("id"),
+  DUE_DATE("dueDate");
+
+  private final String param;
+
+  TaskOrder(String param) {
+    this.param = param;
+  }
+
+  String cursorKind() {
+    return "task-" + name().toLowerCase(Locale.ROOT);
+  }
+
+  public static TaskOrder fromParam(String value) {
+    for (TaskOrder order : values()) {
+      if (order.param.equalsIgnoreCase(value)) {
+        return order;
+      }
+    }
+    throw new InvalidCursorException("Unsupported order: " + value);
+  }
+}
@@ -3,9 +3,13 @@ package com.bedoyarama.busnau.service;
 import com.bedoyarama.busnau.entity.Task;
 import com.bedoyarama.busnau.repository.TaskRepository;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class TaskService {
@@ -20,10 +24,30 @@ public class TaskService {
     return taskRepository.save(task);
   }
 
+  /** Saves all tasks in one transaction; sequence ids let Hibernate send them as JDBC batches. */
+  @Transactional
+  public List<Task> saveAll(List<Task> tasks) {
+    return taskRepository.saveAll(tasks);
+  }
+
   public Optional<Task> findById(Long id) {
     return taskRepository.findById(id);
   }
 
+  /**
+   * Finds a task by id, restricted to tasks of {@code userId} unless it is {@code null}. The owner
+   * check is part of the query, so the task's user is never loaded.
+   */
+  public Optional<Task> findById(Long id, Long userId) {
+    return userId == null
+        ? taskRepository.findById(id)
+        : taskRepository.findByIdAndUser_Id(id, userId);
+  }
+
+  public boolean existsById(Long id) {
+    return taskRepository.existsById(id);
+  }
+
   public List<Task> findAll() {
     return taskRepository.findAll();
   }
@@ -32,6 +56,69 @@ public class TaskService {
     return taskRepository.findByUser_Id(userId);
   }
 
+  /**
+   * Returns one page of tasks in the given order, scoped to {@code userId} unless it is {@code
+   * null}. Pages are located by the key of the previous page's last row, so the cost of a page
+   * does not depend on how deep into the listing it is.
+   */
+  public CursorPage<Task> findPage(Long userId, TaskOrder order, String cursor, int limit) {
+    PageCursor after = PageCursor.decode(cursor, order.cursorKind());
+    List<Task> tasks =
+        switch (order) {
+          case ID -> pageById(userId, after != null ? after.id() : 0L, limit + 1);
+          case DUE_DATE -> pageByDueDate(userId, after, limit + 1);
+        };
+    return CursorPage.of(
+        tasks,
+        limit,
+        last ->
+            new PageCursor(order == TaskOrder.DUE_DATE ? last.getDueDate() : null, last.getId())
+                .encode(order.cursorKind()));
+  }
+
+  private List<Task> pageById(Long userId, long afterId, int fetch) {
+    return userId == null
+        ? taskRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(fetch))
+        : taskRepository.findByUser_IdAndIdGreaterThanOrderByIdAsc(
+            userId, afterId, Limit.of(fetch));
+  }
+
+  // Dated tasks come first in (dueDate, id) order, followed by undated tasks in id order
+  private List<Task> pageByDueDate(Long userId, PageCursor after, int fetch) {
+    List<Task> dated;
+    if (after == null) {
+      dated =
+          userId == null
+              ? taskRepository.findByDueDateNotNullOrderByDueDateAscIdAsc(Limit.of(fetch))
+              : taskRepository.findByUser_IdAndDueDateNotNullOrderByDueDateAscIdAsc(
+                  userId, Limit.of(fetch));
+    } else if (after.dueDate() != null) {
+      dated =
+          userId == null
+              ? taskRepository.pageByDueDateAfter(after.dueDate(), after.id(), Limit.of(fetch))
+              : taskRepository.pageByUserAndDueDateAfter(
+                  userId, after.dueDate(), after.id(), Limit.of(fetch));
+    } else {
+      dated = List.of();
+    }
+    if (dated.size() >= fetch) {
+      return dated;
+    }
+    long afterId = after != null && after.dueDate() == null ? after.id() : 0L;
+    Limit remaining = Limit.of(fetch - dated.size());
+    List<Task> undated =
+        userId == null
+            ? taskRepository.findByDueDateIsNullAndIdGreaterThanOrderByIdAsc(afterId, remaining)
+            : taskRepository.findByUser_IdAndDueDateIsNullAndIdGreaterThanOrderByIdAsc(
+                userId, afterId, remaining);
+    if (dated.isEmpty()) {
+      return undated;
+    }
+    List<Task> tasks = new ArrayList<>(dated);
+    tasks.addAll(undated);
+    return tasks;
+  }
+
   public List<Task> findByCompleted(Boolean completed) {
     return taskRepository.findByCompleted(completed);
   }
@@ -47,4 +134,31 @@ public class TaskService {
   public void deleteById(Long id) {
     taskRepository.deleteById(id);
   }
+
+  /**
+   * Deletes a task in one statement, restricted to tasks of {@code userId} unless it is {@code
+   * null}. Returns whether a task was deleted.
+   */
+  public boolean delete(Long id, Long userId) {
+    int deleted =
+        userId == null
+            ? taskRepository.deleteOne(id)
+            : taskRepository.deleteOneOwnedBy(id, userId);
+    return deleted > 0;
+  }
+
+  /** Marks the given tasks of {@code userId} completed; ids of other users' tasks are skipped. */
+  public int completeByIds(Long userId, Collection<Long> ids) {
+    return taskRepository.completeByIds(userId, ids);
+  }
+
+  /** Deletes the given tasks of {@code userId}; ids of other users' tasks are skipped. */
+  public int deleteByIds(Long userId, Collection<Long> ids) {
+    return taskRepository.deleteByIds(userId, ids);
+  }
+
+  /** Deletes completed tasks of {@code userId} that were due before {@code before}. */
+  public int deleteCompletedDueBefore(Long userId, LocalDate before) {
+    return taskRepository.deleteCompletedDueBefore(userId, before);
+  }
 }
@@ -0,0 +1,9 @@
+package com.bedoyarama.busnau.service;
+
+/** Thrown when an export is requested in a format other than NDJSON or CSV. */
+public class UnsupportedExportFormatException extends RuntimeException {
+
+  public UnsupportedExportFormatException(String format) {
+    super("Unsupported export format: " + format);
+  }
+}
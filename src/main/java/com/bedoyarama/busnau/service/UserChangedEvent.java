@@ -0,0 +1,13 @@
+package com.bedoyarama.busnau.service;
+
+/**
+ * Published after a user is saved or deleted, so per-node caches of users, roles and tokens can
+ * evict what they hold for that user. {@code remote} events were received from another node and
+ * must not be forwarded again.
+ */
+public record UserChangedEvent(Long userId, String username, boolean remote) {
+
+  public UserChangedEvent(Long userId, String username) {
+    this(userId, username, false);
+  }
+}
@@ -1,35 +1,102 @@
 package com.bedoyarama.busnau.service;
 
+import com.bedoyarama.busnau.config.PasswordFormats;
 import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.repository.RefreshTokenRepository;
 import com.bedoyarama.busnau.repository.UserRepository;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UserService {
 
+  private static final String USER_CURSOR_KIND = "user-id";
+
   private final UserRepository userRepository;
+  private final RefreshTokenRepository refreshTokenRepository;
   private final PasswordEncoder passwordEncoder;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+  public UserService(
+      UserRepository userRepository,
+      RefreshTokenRepository refreshTokenRepository,
+      PasswordEncoder passwordEncoder,
+      ApplicationEventPublisher eventPublisher) {
     this.userRepository = userRepository;
+    this.refreshTokenRepository = refreshTokenRepository;
     this.passwordEncoder = passwordEncoder;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Creates a user whose password came from a client. The password is always encoded, even when
+   * it happens to look like a hash.
+   */
+  public User create(User user) {
+    user.setPassword(passwordEncoder.encode(user.getPassword()));
+    return persist(user);
   }
 
   public User save(User user) {
     // Encode password if not already encoded
-    if (user.getPassword() != null && !user.getPassword().startsWith("$2a$")) { // BCrypt prefix
+    if (user.getPassword() != null && !PasswordFormats.isEncoded(user.getPassword())) {
       user.setPassword(passwordEncoder.encode(user.getPassword()));
     }
-    return userRepository.save(user);
+    return persist(user);
+  }
+
+  private User persist(User user) {
+    if (user.getId() != null) {
+      // Invalidate stateless access tokens that still carry the old role
+      userRepository
+          .findRoleById(user.getId())
+          .filter(role -> role != user.getRole())
+          .ifPresent(role -> user.setRoleVersion(user.getRoleVersion() + 1));
+    }
+    User saved = userRepository.save(user);
+    eventPublisher.publishEvent(new UserChangedEvent(saved.getId(), saved.getUsername()));
+    return saved;
+  }
+
+  /**
+   * Stores a re-encoded password hash after a successful login with an outdated encoding. The
+   * hash is written directly, without going through {@link #save(User)}.
+   */
+  public void updatePassword(Long id, String username, String encodedPassword) {
+    if (userRepository.updatePassword(id, encodedPassword) > 0) {
+      eventPublisher.publishEvent(new UserChangedEvent(id, username));
+    }
+  }
+
+  /**
+   * Logs a user out of every session: bumps the token epoch, which invalidates all access tokens
+   * issued so far, and deletes the user's refresh tokens. Each step commits on its own so that
+   * caches evicted by the published event cannot be refilled with the old epoch.
+   *
+   * @return false if the user does not exist
+   */
+  public boolean revokeSessions(Long id, String username) {
+    if (userRepository.incrementTokenEpoch(id) == 0) {
+      return false;
+    }
+    refreshTokenRepository.deleteByUser(userRepository.getReferenceById(id));
+    eventPublisher.publishEvent(new UserChangedEvent(id, username));
+    return true;
   }
 
   public Optional<User> findById(Long id) {
     return userRepository.findById(id);
   }
 
+  /** Returns a lazy reference for associating entities with a user without loading the row. */
+  public User getReference(Long id) {
+    return userRepository.getReferenceById(id);
+  }
+
   public User findByUsername(String username) {
     return userRepository.findByUsername(username);
   }
@@ -38,7 +105,23 @@ public class UserService {
     return userRepository.findAll();
   }
 
+  /** Returns one page of users in id order, starting after the row the cursor points at. */
+  public CursorPage<User> findPage(String cursor, int limit) {
+    PageCursor after = PageCursor.decode(cursor, USER_CURSOR_KIND);
+    List<User> users =
+        userRepository.findByIdGreaterThanOrderByIdAsc(
+            after != null ? after.id() : 0L, Limit.of(limit + 1));
+    return CursorPage.of(
+        users, limit, last -> PageCursor.afterId(last.getId()).encode(USER_CURSOR_KIND));
+  }
+
   public void deleteById(Long id) {
-    userRepository.deleteById(id);
+    userRepository
+        .findById(id)
+        .ifPresent(
+            user -> {
+              userRepository.delete(user);
+              eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getUsername()));
+            });
   }
 }
@@ -0,0 +1,5 @@
+-- Indexes backing keyset pagination of tasks on (id) and (due_date, id),
+-- both across all users and scoped to a single user
+CREATE INDEX idx_tasks_user_id_id ON tasks(user_id, id);
+CREATE INDEX idx_tasks_due_date_id ON tasks(due_date, id);
+CREATE INDEX idx_tasks_user_id_due_date_id ON tasks(user_id, due_date, id);
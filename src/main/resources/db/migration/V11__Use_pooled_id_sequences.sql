@@ -0,0 +1,6 @@
+-- Hibernate now takes ids from these sequences in blocks of 50 (pooled optimizer) instead of
+-- relying on IDENTITY columns, so it can batch inserts. The nextval column defaults stay in
+-- place for rows written over plain JDBC (refresh token writer, task import).
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE tasks_id_seq INCREMENT BY 50;
+ALTER SEQUENCE refresh_tokens_id_seq INCREMENT BY 50;
@@ -0,0 +1,7 @@
+-- Plain-JDBC writers now reserve ids in the same blocks of 50 as Hibernate's pooled optimizer.
+-- Hibernate treats a sequence still at its initial value specially, taking its first two reads
+-- as one block, which could overlap a block reserved in between. Move every sequence past its
+-- initial value; sequences already in use are left where they are.
+SELECT setval('users_id_seq', GREATEST(last_value, 50)) FROM users_id_seq;
+SELECT setval('tasks_id_seq', GREATEST(last_value, 50)) FROM tasks_id_seq;
+SELECT setval('refresh_tokens_id_seq', GREATEST(last_value, 50)) FROM refresh_tokens_id_seq;
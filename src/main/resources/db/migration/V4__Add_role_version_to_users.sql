@@ -0,0 +1,3 @@
+-- Bumped whenever a user's role changes, so stateless access tokens minted
+-- before the change can be rejected without loading the user on every request
+ALTER TABLE users ADD COLUMN role_version INTEGER NOT NULL DEFAULT 0;
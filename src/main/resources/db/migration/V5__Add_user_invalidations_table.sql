@@ -0,0 +1,11 @@
+-- Cross-node cache invalidation log, polled by nodes whose database does not
+-- support LISTEN/NOTIFY (on PostgreSQL invalidations go through NOTIFY instead)
+CREATE TABLE user_invalidations (
+    id BIGSERIAL PRIMARY KEY,
+    node_id VARCHAR(36) NOT NULL,
+    user_id BIGINT NOT NULL,
+    username VARCHAR(50),
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_user_invalidations_created_at ON user_invalidations(created_at);
@@ -0,0 +1,15 @@
+-- Store refresh tokens as fixed-width SHA-256 digests instead of the raw JWT.
+-- Dropping the token column also drops its UNIQUE constraint, which together
+-- with idx_refresh_tokens_token indexed the same wide column twice.
+ALTER TABLE refresh_tokens ADD COLUMN token_hash BYTEA;
+
+UPDATE refresh_tokens SET token_hash = sha256(convert_to(token, 'UTF8'));
+
+ALTER TABLE refresh_tokens ALTER COLUMN token_hash SET NOT NULL;
+ALTER TABLE refresh_tokens
+    ADD CONSTRAINT chk_refresh_tokens_token_hash_length CHECK (octet_length(token_hash) = 32);
+
+DROP INDEX IF EXISTS idx_refresh_tokens_token;
+ALTER TABLE refresh_tokens DROP COLUMN token;
+
+CREATE UNIQUE INDEX uk_refresh_tokens_token_hash ON refresh_tokens(token_hash);
@@ -0,0 +1,3 @@
+-- Bumped to revoke every access token issued to a user so far (logout of all
+-- sessions); tokens carry the epoch they were issued under
+ALTER TABLE users ADD COLUMN token_epoch INTEGER NOT NULL DEFAULT 0;
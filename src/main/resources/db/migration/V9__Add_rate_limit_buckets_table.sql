@@ -0,0 +1,9 @@
+-- Shared token buckets for cluster-wide rate limiting; nodes lease small
+-- batches of tokens from these rows and hand them out locally
+CREATE TABLE rate_limit_buckets (
+    bucket_key VARCHAR(200) PRIMARY KEY,
+    tokens DOUBLE PRECISION NOT NULL,
+    refilled_at BIGINT NOT NULL
+);
+
+CREATE INDEX idx_rate_limit_buckets_refilled_at ON rate_limit_buckets(refilled_at);
@@ -0,0 +1,89 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+
+  private static final long MS = 1_000_000;
+
+  @Test
+  void tryAcquire_shouldRejectBeyondLimitUnlessHeadroomIsGiven() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10);
+
+    assertTrue(limit.tryAcquire(0));
+    assertTrue(limit.tryAcquire(0));
+    assertFalse(limit.tryAcquire(0));
+    assertTrue(limit.tryAcquire(1));
+    assertEquals(3, limit.inflight());
+  }
+
+  @Test
+  void release_shouldGrowLimitWhileLatencyIsFlatAndBusy() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 5, 100);
+
+    for (int i = 0; i < 200; i++) {
+      saturate(limit, 10 * MS);
+    }
+
+    assertTrue(limit.limit() > 10, "limit: " + limit.limit());
+  }
+
+  @Test
+  void release_shouldShrinkLimitWhenLatencyRises() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 5, 100);
+    for (int i = 0; i < 50; i++) {
+      saturate(limit, 10 * MS);
+    }
+    int before = limit.limit();
+
+    for (int i = 0; i < 200; i++) {
+      saturate(limit, 200 * MS);
+    }
+
+    assertTrue(limit.limit() < before, "limit went from " + before + " to " + limit.limit());
+    assertTrue(limit.limit() >= 5);
+  }
+
+  @Test
+  void release_shouldNotGrowLimitWhenMostlyIdle() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 5, 100);
+
+    for (int i = 0; i < 200; i++) {
+      assertTrue(limit.tryAcquire(0));
+      limit.release(10 * MS);
+    }
+
+    assertEquals(10, limit.limit());
+  }
+
+  @Test
+  void release_shouldFreeSlotWithoutMovingLimit_whenNoSampleIsGiven() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 5, 100);
+    saturate(limit, 10 * MS);
+    int before = limit.limit();
+
+    int acquired = 0;
+    while (limit.tryAcquire(0)) {
+      acquired++;
+    }
+    for (int i = 0; i < acquired; i++) {
+      limit.release();
+    }
+
+    assertEquals(before, limit.limit());
+    assertEquals(0, limit.inflight());
+  }
+
+  /** Fills every slot, then releases them all with the given latency. */
+  private void saturate(AdaptiveConcurrencyLimit limit, long rttNanos) {
+    int acquired = 0;
+    while (limit.tryAcquire(0)) {
+      acquired++;
+    }
+    for (int i = 0; i < acquired; i++) {
+      limit.release(rttNanos);
+    }
+  }
+}
@@ -1,16 +1,24 @@
 package com.bedoyarama.busnau.config;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
+import com.bedoyarama.busnau.entity.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.Optional;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -23,12 +31,21 @@ class AuthTokenFilterTest {
 
   @Mock private JwtUtils jwtUtils;
   @Mock private UserDetailsService userDetailsService;
-  @InjectMocks private AuthTokenFilter authTokenFilter;
+  @Mock private UserVersionCache userVersionCache;
+  private AuthTokenFilter authTokenFilter;
 
   @Mock private HttpServletRequest request;
   @Mock private HttpServletResponse response;
   @Mock private FilterChain filterChain;
 
+  @BeforeEach
+  void setUp() {
+    VerifiedTokenCache cache =
+        new VerifiedTokenCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+    authTokenFilter =
+        new AuthTokenFilter(jwtUtils, userDetailsService, cache, userVersionCache, true);
+  }
+
   @AfterEach
   void tearDown() {
     SecurityContextHolder.clearContext();
@@ -37,8 +54,8 @@ class AuthTokenFilterTest {
   @Test
   void doFilterInternal_shouldAuthenticate_whenValidBearerToken() throws Exception {
     when(request.getHeader("Authorization")).thenReturn("Bearer validToken");
-    when(jwtUtils.validateJwtToken("validToken")).thenReturn(true);
-    when(jwtUtils.getUserNameFromJwtToken("validToken")).thenReturn("alice");
+    when(jwtUtils.verifyJwtToken("validToken"))
+        .thenReturn(Optional.of(claimsFor("alice", Instant.now())));
 
     UserDetails ud = new User("alice", "pw", Collections.emptyList());
     when(userDetailsService.loadUserByUsername("alice")).thenReturn(ud);
@@ -50,10 +67,129 @@ class AuthTokenFilterTest {
     assertNotNull(SecurityContextHolder.getContext().getAuthentication());
   }
 
+  @Test
+  void doFilterInternal_shouldReuseVerifiedPrincipal_forRepeatedToken() throws Exception {
+    when(request.getHeader("Authorization")).thenReturn("Bearer repeatedToken");
+    Instant exp = Instant.now().plusSeconds(3600);
+    when(jwtUtils.verifyJwtToken("repeatedToken"))
+        .thenReturn(Optional.of(claimsFor("alice", exp)));
+    UserDetails ud = new User("alice", "pw", Collections.emptyList());
+    when(userDetailsService.loadUserByUsername("alice")).thenReturn(ud);
+
+    authTokenFilter.doFilterInternal(request, response, filterChain);
+    SecurityContextHolder.clearContext();
+    authTokenFilter.doFilterInternal(request, response, filterChain);
+
+    verify(jwtUtils, times(1)).verifyJwtToken("repeatedToken");
+    verify(userDetailsService, times(1)).loadUserByUsername("alice");
+    verify(filterChain, times(2)).doFilter(request, response);
+    assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  @Test
+  void doFilterInternal_shouldBuildPrincipalFromClaims_withoutLoadingUser() throws Exception {
+    when(request.getHeader("Authorization")).thenReturn("Bearer statelessToken");
+    JwtClaims claims =
+        new JwtClaims(
+            JwtClaims.ACCESS,
+            "alice",
+            7L,
+            Role.ADMIN,
+            2,
+            0,
+            Instant.now(),
+            Instant.now().plusSeconds(3600));
+    when(jwtUtils.verifyJwtToken("statelessToken")).thenReturn(Optional.of(claims));
+    when(userVersionCache.isCurrent(any(UserPrincipal.class))).thenReturn(true);
+
+    authTokenFilter.doFilterInternal(request, response, filterChain);
+
+    verify(userDetailsService, never()).loadUserByUsername(anyString());
+    UserPrincipal principal =
+        (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    assertEquals(Long.valueOf(7L), principal.getId());
+    assertTrue(principal.isAdmin());
+  }
+
+  @Test
+  void doFilterInternal_shouldNotAuthenticate_whenRoleVersionIsStale() throws Exception {
+    when(request.getHeader("Authorization")).thenReturn("Bearer staleToken");
+    JwtClaims claims =
+        new JwtClaims(
+            JwtClaims.ACCESS,
+            "alice",
+            7L,
+            Role.USER,
+            1,
+            0,
+            Instant.now(),
+            Instant.now().plusSeconds(3600));
+    when(jwtUtils.verifyJwtToken("staleToken")).thenReturn(Optional.of(claims));
+    when(userVersionCache.isCurrent(any(UserPrincipal.class))).thenReturn(false);
+
+    authTokenFilter.doFilterInternal(request, response, filterChain);
+
+    verify(filterChain).doFilter(request, response);
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  @Test
+  void doFilterInternal_shouldNotAuthenticate_whenLoadedUserHasNewerTokenEpoch() throws Exception {
+    AuthTokenFilter statefulFilter =
+        new AuthTokenFilter(
+            jwtUtils,
+            userDetailsService,
+            new VerifiedTokenCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()),
+            userVersionCache,
+            false);
+    when(request.getHeader("Authorization")).thenReturn("Bearer revokedToken");
+    JwtClaims claims =
+        new JwtClaims(
+            JwtClaims.ACCESS,
+            "alice",
+            7L,
+            Role.USER,
+            0,
+            1,
+            Instant.now(),
+            Instant.now().plusSeconds(3600));
+    when(jwtUtils.verifyJwtToken("revokedToken")).thenReturn(Optional.of(claims));
+    UserPrincipal loaded = new UserPrincipal(7L, "alice", "pw", Role.USER, 0, 2);
+    when(userDetailsService.loadUserByUsername("alice")).thenReturn(loaded);
+    when(userVersionCache.isCurrent(loaded, 1)).thenReturn(false);
+
+    statefulFilter.doFilterInternal(request, response, filterChain);
+
+    verify(filterChain).doFilter(request, response);
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
   @Test
   void doFilterInternal_shouldNotAuthenticate_whenInvalidToken() throws Exception {
     when(request.getHeader("Authorization")).thenReturn("Bearer bad");
-    when(jwtUtils.validateJwtToken("bad")).thenReturn(false);
+    when(jwtUtils.verifyJwtToken("bad")).thenReturn(Optional.empty());
+
+    authTokenFilter.doFilterInternal(request, response, filterChain);
+
+    verify(userDetailsService, never()).loadUserByUsername(anyString());
+    verify(filterChain).doFilter(request, response);
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  @Test
+  void doFilterInternal_shouldNotAuthenticate_whenRefreshTokenPresented() throws Exception {
+    when(request.getHeader("Authorization")).thenReturn("Bearer refreshToken");
+    JwtClaims claims =
+        new JwtClaims(
+            JwtClaims.REFRESH,
+            "alice",
+            null,
+            null,
+            null,
+            0,
+            Instant.now(),
+            Instant.now().plusSeconds(3600));
+    when(jwtUtils.verifyJwtToken("refreshToken")).thenReturn(Optional.of(claims));
 
     authTokenFilter.doFilterInternal(request, response, filterChain);
 
@@ -68,7 +204,7 @@ class AuthTokenFilterTest {
 
     authTokenFilter.doFilterInternal(request, response, filterChain);
 
-    verify(jwtUtils, never()).validateJwtToken(anyString());
+    verify(jwtUtils, never()).verifyJwtToken(anyString());
     verify(filterChain).doFilter(request, response);
     assertNull(SecurityContextHolder.getContext().getAuthentication());
   }
@@ -79,10 +215,15 @@ class AuthTokenFilterTest {
 
     authTokenFilter.doFilterInternal(request, response, filterChain);
 
-    verify(jwtUtils, never()).validateJwtToken(anyString());
+    verify(jwtUtils, never()).verifyJwtToken(anyString());
     verify(filterChain).doFilter(request, response);
   }
 
+  private JwtClaims claimsFor(String username, Instant expiresAt) {
+    return new JwtClaims(
+        JwtClaims.ACCESS, username, null, null, null, 0, Instant.now(), expiresAt);
+  }
+
   private void assertNotNull(Object obj) {
     org.junit.jupiter.api.Assertions.assertNotNull(obj);
   }
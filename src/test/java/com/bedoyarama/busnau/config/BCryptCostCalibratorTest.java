@@ -0,0 +1,19 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class BCryptCostCalibratorTest {
+
+  @Test
+  void calibrate_shouldReturnMinimum_whenTargetIsBelowOneHash() {
+    assertEquals(4, BCryptCostCalibrator.calibrate(Duration.ZERO, 4, 6));
+  }
+
+  @Test
+  void calibrate_shouldCapAtMaximum_whenTargetIsGenerous() {
+    assertEquals(6, BCryptCostCalibrator.calibrate(Duration.ofHours(1), 4, 6));
+  }
+}
@@ -0,0 +1,98 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class BoundedPasswordEncoderTest {
+
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private final PasswordEncoder blockingEncoder =
+      new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+          started.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return "encoded:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+          return encodedPassword.equals("encoded:" + rawPassword);
+        }
+      };
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private final BoundedPasswordEncoder encoder =
+      new BoundedPasswordEncoder(
+          blockingEncoder, 1, 1, Duration.ofSeconds(5), Duration.ofSeconds(5), registry);
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    encoder.shutdown();
+  }
+
+  @Test
+  void matches_shouldDelegate() {
+    assertTrue(encoder.matches("secret", "encoded:secret"));
+    assertFalse(encoder.matches("secret", "encoded:other"));
+  }
+
+  @Test
+  void encode_shouldRejectWork_whenPoolAndQueueAreFull() throws Exception {
+    CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+    waitForQueueDepth(1);
+
+    assertThrows(PasswordHashingUnavailableException.class, () -> encoder.encode("c"));
+    assertEquals(1.0, registry.get("password.hashing.rejected").counter().count());
+
+    release.countDown();
+    assertEquals("encoded:a", running.get(5, TimeUnit.SECONDS));
+    assertEquals("encoded:b", queued.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void encode_shouldStopWaiting_afterQueueTimeoutPlusMaxHashTime() throws Exception {
+    BoundedPasswordEncoder impatient =
+        new BoundedPasswordEncoder(
+            blockingEncoder, 1, 1, Duration.ofMillis(50), Duration.ofMillis(50), registry);
+    try {
+      long start = System.nanoTime();
+
+      assertThrows(PasswordHashingUnavailableException.class, () -> impatient.encode("a"));
+
+      // The delegate would block for 5s; the caller gives up after about 100ms
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+      assertEquals(1.0, registry.get("password.hashing.rejected").counter().count());
+    } finally {
+      impatient.shutdown();
+    }
+  }
+
+  private void waitForQueueDepth(int depth) throws InterruptedException {
+    for (int i = 0; i < 500; i++) {
+      if (registry.get("password.hashing.queue.depth").gauge().value() >= depth) {
+        return;
+      }
+      Thread.sleep(10);
+    }
+    fail("queue never reached depth " + depth);
+  }
+}
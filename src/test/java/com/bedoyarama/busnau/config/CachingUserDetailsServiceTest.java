@@ -0,0 +1,54 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.bedoyarama.busnau.entity.Role;
+import com.bedoyarama.busnau.service.UserChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+class CachingUserDetailsServiceTest {
+
+  private UserDetailsService delegate;
+  private CachingUserDetailsService service;
+
+  @BeforeEach
+  void setUp() {
+    delegate = mock(UserDetailsService.class);
+    when(delegate.loadUserByUsername("alice"))
+        .thenAnswer(inv -> new UserPrincipal(1L, "alice", "hash", Role.USER, 0, 0));
+    service =
+        new CachingUserDetailsService(
+            delegate, 100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+  }
+
+  @Test
+  void loadUserByUsername_shouldHitDelegateOnce_forRepeatedLookups() {
+    service.loadUserByUsername("alice");
+    service.loadUserByUsername("alice");
+
+    verify(delegate, times(1)).loadUserByUsername("alice");
+  }
+
+  @Test
+  void loadUserByUsername_shouldReturnCopy_soErasingCredentialsKeepsCache() {
+    UserDetails first = service.loadUserByUsername("alice");
+    ((UserPrincipal) first).eraseCredentials();
+
+    assertEquals("hash", service.loadUserByUsername("alice").getPassword());
+  }
+
+  @Test
+  void onUserChanged_shouldEvictUser() {
+    service.loadUserByUsername("alice");
+    service.onUserChanged(new UserChangedEvent(1L, "alice"));
+    service.loadUserByUsername("alice");
+
+    verify(delegate, times(2)).loadUserByUsername("alice");
+  }
+}
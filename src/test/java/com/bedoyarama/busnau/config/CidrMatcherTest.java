@@ -0,0 +1,61 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CidrMatcherTest {
+
+  private final CidrMatcher matcher =
+      new CidrMatcher(List.of("10.0.0.0/8", "192.168.1.0/24", "203.0.113.9", "fd00::/8", "::1"));
+
+  @Test
+  void matches_shouldMatchIpv4Blocks() {
+    assertTrue(matcher.matches("10.200.3.4"));
+    assertTrue(matcher.matches("192.168.1.255"));
+    assertTrue(matcher.matches("203.0.113.9"));
+    assertFalse(matcher.matches("192.168.2.1"));
+    assertFalse(matcher.matches("203.0.113.10"));
+    assertFalse(matcher.matches("11.0.0.1"));
+  }
+
+  @Test
+  void matches_shouldMatchIpv6BlocksAndMappedIpv4() {
+    assertTrue(matcher.matches("fd12:3456::1"));
+    assertTrue(matcher.matches("0:0:0:0:0:0:0:1"));
+    assertTrue(matcher.matches("::1"));
+    assertTrue(matcher.matches("::ffff:10.1.2.3"));
+    assertFalse(matcher.matches("fe80::1%eth0"));
+    assertFalse(matcher.matches("2001:db8::1"));
+  }
+
+  @Test
+  void matches_shouldRejectMalformedAddresses() {
+    assertFalse(matcher.matches("10.0.0"));
+    assertFalse(matcher.matches("10.0.0.256"));
+    assertFalse(matcher.matches("unknown"));
+    assertFalse(matcher.matches("fd00:::1"));
+    assertFalse(matcher.matches("fd00:1:2:3:4:5:6:7:8"));
+    assertFalse(matcher.matches(""));
+  }
+
+  @Test
+  void matches_shouldUseGivenRange() {
+    String header = "x, 10.0.0.1 ,y";
+    assertTrue(matcher.matches(header, 3, 11));
+  }
+
+  @Test
+  void isAddress_shouldAcceptValidAddresses() {
+    assertTrue(CidrMatcher.isAddress("2001:db8::1", 0, 11));
+    assertTrue(CidrMatcher.isAddress("198.51.100.7", 0, 12));
+    assertFalse(CidrMatcher.isAddress("example.com", 0, 11));
+  }
+
+  @Test
+  void constructor_shouldRejectMalformedBlocks() {
+    assertThrows(IllegalArgumentException.class, () -> new CidrMatcher(List.of("10.0.0.0/33")));
+    assertThrows(IllegalArgumentException.class, () -> new CidrMatcher(List.of("nope/8")));
+  }
+}
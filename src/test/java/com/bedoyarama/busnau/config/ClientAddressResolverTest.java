@@ -0,0 +1,57 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class ClientAddressResolverTest {
+
+  private final ClientAddressResolver resolver =
+      new ClientAddressResolver(List.of("10.0.0.0/8", "127.0.0.1"), "X-Forwarded-For");
+
+  @Test
+  void resolve_shouldReturnPeer_whenNoHeader() {
+    assertEquals("198.51.100.7", resolver.resolve(request("198.51.100.7")));
+  }
+
+  @Test
+  void resolve_shouldIgnoreHeader_fromUntrustedPeer() {
+    assertEquals("198.51.100.7", resolver.resolve(request("198.51.100.7", "203.0.113.5")));
+  }
+
+  @Test
+  void resolve_shouldReturnRightmostUntrustedHop() {
+    assertEquals(
+        "203.0.113.5",
+        resolver.resolve(request("127.0.0.1", "1.1.1.1, 203.0.113.5 , 10.0.0.2, 10.0.0.1")));
+  }
+
+  @Test
+  void resolve_shouldWalkSeparateHeaderLines() {
+    MockHttpServletRequest request = request("10.0.0.1", "1.1.1.1, 203.0.113.5");
+    request.addHeader("X-Forwarded-For", "10.0.0.3");
+    assertEquals("203.0.113.5", resolver.resolve(request));
+  }
+
+  @Test
+  void resolve_shouldReturnLeftmostHop_whenAllHopsAreTrusted() {
+    assertEquals("10.0.0.3", resolver.resolve(request("10.0.0.1", "10.0.0.3, 10.0.0.2")));
+  }
+
+  @Test
+  void resolve_shouldFallBackToLastTrustedHop_whenClientHopIsGarbage() {
+    assertEquals("10.0.0.2", resolver.resolve(request("10.0.0.1", "unknown, 10.0.0.2")));
+    assertEquals("10.0.0.1", resolver.resolve(request("10.0.0.1", "unknown")));
+  }
+
+  private MockHttpServletRequest request(String remoteAddress, String... forwarded) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setRemoteAddr(remoteAddress);
+    for (String value : forwarded) {
+      request.addHeader("X-Forwarded-For", value);
+    }
+    return request;
+  }
+}
@@ -0,0 +1,76 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ConcurrencyLimitFilterTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final ConcurrencyLimitFilter filter =
+      new ConcurrencyLimitFilter(registry, true, 1, 1, 10, List.of("/actuator/health/**"), 1);
+
+  @Test
+  void doFilter_shouldShedOrdinaryRequestsButAdmitPriorityOnes_whenSaturated() throws Exception {
+    AtomicReference<MockHttpServletResponse> ordinary = new AtomicReference<>();
+    AtomicReference<MockHttpServletResponse> health = new AtomicReference<>();
+
+    // While the first request holds the only slot, issue two more from inside the chain
+    filter.doFilter(
+        new MockHttpServletRequest("GET", "/api/tasks"),
+        new MockHttpServletResponse(),
+        (req, res) -> {
+          ordinary.set(new MockHttpServletResponse());
+          filter.doFilter(
+              new MockHttpServletRequest("GET", "/api/tasks"), ordinary.get(), (r, s) -> {});
+          health.set(new MockHttpServletResponse());
+          filter.doFilter(
+              new MockHttpServletRequest("GET", "/actuator/health"), health.get(), (r, s) -> {});
+        });
+
+    assertEquals(503, ordinary.get().getStatus());
+    assertEquals("1", ordinary.get().getHeader("Retry-After"));
+    assertEquals(200, health.get().getStatus());
+    assertEquals(
+        1.0, registry.get("concurrency.dropped").tag("priority", "false").counter().count());
+  }
+
+  @Test
+  void doFilter_shouldHoldSlotUntilAsyncRequestCompletes() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/export");
+    request.setAsyncSupported(true);
+
+    filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+    assertEquals(1.0, registry.get("concurrency.inflight").gauge().value());
+    MockHttpServletResponse shed = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", "/api/tasks"), shed, (req, res) -> {});
+    assertEquals(503, shed.getStatus());
+
+    ((MockAsyncContext) request.getAsyncContext()).complete();
+
+    assertEquals(0.0, registry.get("concurrency.inflight").gauge().value());
+  }
+
+  @Test
+  void doFilter_shouldPassThrough_whenDisabled() throws Exception {
+    ConcurrencyLimitFilter disabled =
+        new ConcurrencyLimitFilter(registry, false, 1, 1, 10, List.of(), 0);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    disabled.doFilter(
+        new MockHttpServletRequest("GET", "/api/tasks"),
+        new MockHttpServletResponse(),
+        (req, res) ->
+            disabled.doFilter(
+                new MockHttpServletRequest("GET", "/api/tasks"), response, (r, s) -> {}));
+
+    assertEquals(200, response.getStatus());
+  }
+}
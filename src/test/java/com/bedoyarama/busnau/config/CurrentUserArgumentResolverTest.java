@@ -0,0 +1,79 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.bedoyarama.busnau.entity.Role;
+import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.service.UserService;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+@ExtendWith(MockitoExtension.class)
+class CurrentUserArgumentResolverTest {
+
+  @Mock private UserService userService;
+
+  private CurrentUserArgumentResolver resolver;
+  private NativeWebRequest webRequest;
+
+  @BeforeEach
+  void setUp() {
+    resolver = new CurrentUserArgumentResolver(userService);
+    webRequest = new ServletWebRequest(new MockHttpServletRequest());
+  }
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void resolveArgument_shouldReturnPrincipal_withoutLookup() {
+    UserPrincipal principal = new UserPrincipal(1L, "alice", null, Role.USER, 0, 0);
+    authenticate(principal);
+
+    assertSame(principal, resolver.resolveArgument(null, null, webRequest, null));
+    verify(userService, never()).findByUsername(anyString());
+  }
+
+  @Test
+  void resolveArgument_shouldLookUpOnce_forOtherPrincipals() {
+    User user = new User();
+    user.setId(2L);
+    user.setUsername("bob");
+    user.setRole(Role.ADMIN);
+    when(userService.findByUsername("bob")).thenReturn(user);
+    authenticate("bob");
+
+    UserPrincipal first = resolver.resolveArgument(null, null, webRequest, null);
+    UserPrincipal second = resolver.resolveArgument(null, null, webRequest, null);
+
+    assertEquals(Long.valueOf(2L), first.getId());
+    assertTrue(first.isAdmin());
+    assertSame(first, second);
+    verify(userService, times(1)).findByUsername("bob");
+  }
+
+  @Test
+  void resolveArgument_shouldReturnNull_whenUnauthenticated() {
+    assertNull(resolver.resolveArgument(null, null, webRequest, null));
+  }
+
+  private void authenticate(Object principal) {
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+  }
+}
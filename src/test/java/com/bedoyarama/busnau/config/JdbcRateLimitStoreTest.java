@@ -0,0 +1,212 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bedoyarama.busnau.config.RateLimitPolicies.Limit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+class JdbcRateLimitStoreTest {
+
+  private static final Limit TEN_PER_MINUTE = new Limit(10, Duration.ofMinutes(1));
+
+  private EmbeddedDatabase database;
+  private JdbcTemplate jdbcTemplate;
+  private SimpleMeterRegistry registry;
+  private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+  private JdbcRateLimitStore store;
+  private Counter fallbacks;
+
+  @BeforeEach
+  void setUp() {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    jdbcTemplate = new JdbcTemplate(database);
+    jdbcTemplate.execute(
+        "CREATE TABLE rate_limit_buckets (bucket_key VARCHAR(200) PRIMARY KEY,"
+            + " tokens DOUBLE PRECISION NOT NULL, refilled_at BIGINT NOT NULL)");
+    registry = new SimpleMeterRegistry();
+    fallbacks = registry.counter("rate-limit.store.fallback");
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now;
+          }
+        };
+    store =
+        new JdbcRateLimitStore(
+            jdbcTemplate,
+            new DataSourceTransactionManager(database),
+            registry,
+            Duration.ofHours(1),
+            clock);
+  }
+
+  @AfterEach
+  void tearDown() {
+    database.shutdown();
+  }
+
+  @Test
+  void lease_shouldGrantUpToCapacityAndRefillOverTime() {
+    assertEquals(4, store.lease("k", TEN_PER_MINUTE, 4));
+    assertEquals(4, store.lease("k", TEN_PER_MINUTE, 4));
+    assertEquals(2, store.lease("k", TEN_PER_MINUTE, 4));
+    assertEquals(0, store.lease("k", TEN_PER_MINUTE, 4));
+
+    now = now.plusSeconds(30);
+
+    assertEquals(4, store.lease("k", TEN_PER_MINUTE, 4));
+    assertEquals(1, store.lease("k", TEN_PER_MINUTE, 4));
+  }
+
+  @Test
+  void leasedBuckets_onSeveralNodesShouldShareOneQuota() {
+    long ttl = Duration.ofMinutes(1).toNanos();
+    LeasedBucket nodeA = new LeasedBucket("k", TEN_PER_MINUTE, store, 3, ttl, fallbacks);
+    LeasedBucket nodeB = new LeasedBucket("k", TEN_PER_MINUTE, store, 3, ttl, fallbacks);
+
+    int allowed = 0;
+    for (int i = 0; i < 20; i++) {
+      if ((i % 2 == 0 ? nodeA : nodeB).tryConsume()) {
+        allowed++;
+      }
+    }
+
+    assertEquals(10, allowed);
+    // Each node leases 1, 2, then 3 tokens as demand persists, then one empty lease
+    assertEquals(8.0, registry.get("rate-limit.leases").counter().count());
+  }
+
+  @Test
+  void leasedBucket_shouldGiveSparseClientItsFullQuota() {
+    // Every request arrives after the previous lease expired
+    LeasedBucket bucket = new LeasedBucket("k", TEN_PER_MINUTE, store, 5, 0, fallbacks);
+
+    int allowed = 0;
+    for (int i = 0; i < 15; i++) {
+      if (bucket.tryConsume()) {
+        allowed++;
+      }
+    }
+
+    assertEquals(10, allowed);
+  }
+
+  @Test
+  void leasedBucket_shouldLimitOnThisNode_whenStoreFails() {
+    jdbcTemplate.execute("DROP TABLE rate_limit_buckets");
+    LeasedBucket bucket =
+        new LeasedBucket(
+            "k", TEN_PER_MINUTE, store, 5, Duration.ofMinutes(1).toNanos(), fallbacks);
+
+    int allowed = 0;
+    for (int i = 0; i < 15; i++) {
+      if (bucket.tryConsume()) {
+        allowed++;
+      }
+    }
+
+    assertEquals(10, allowed);
+    assertEquals(15.0, fallbacks.count());
+    // The failed store is left alone for a lease TTL instead of being asked on every request
+    assertEquals(1.0, registry.get("rate-limit.leases").counter().count());
+  }
+
+  @Test
+  void leasedBucket_shouldNotHoldOtherRequestsBehindSlowLease() throws Exception {
+    JdbcRateLimitStore slowStore = mock(JdbcRateLimitStore.class);
+    CountDownLatch leaseStarted = new CountDownLatch(1);
+    CountDownLatch finishLease = new CountDownLatch(1);
+    when(slowStore.lease(eq("k"), eq(TEN_PER_MINUTE), anyLong(), anyLong()))
+        .thenAnswer(
+            invocation -> {
+              leaseStarted.countDown();
+              finishLease.await();
+              return 1L;
+            });
+    LeasedBucket bucket =
+        new LeasedBucket(
+            "k", TEN_PER_MINUTE, slowStore, 5, Duration.ofMillis(50).toNanos(), fallbacks);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> first = executor.submit(bucket::tryConsume);
+      assertTrue(leaseStarted.await(5, TimeUnit.SECONDS));
+
+      // Waits one lease TTL for the lease in flight, then decides locally
+      assertTrue(bucket.tryConsume());
+      assertEquals(1.0, fallbacks.count());
+      assertFalse(first.isDone());
+
+      finishLease.countDown();
+      assertTrue(first.get(5, TimeUnit.SECONDS));
+      verify(slowStore, times(1)).lease(eq("k"), eq(TEN_PER_MINUTE), anyLong(), anyLong());
+    } finally {
+      finishLease.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void lease_shouldReturnUnusedTokensCappedAtCapacity() {
+    assertEquals(4, store.lease("k", TEN_PER_MINUTE, 4));
+    // 3 of the 4 leased tokens went unused
+    assertEquals(1, store.lease("k", TEN_PER_MINUTE, 1, 3));
+    assertEquals(8, store.lease("k", TEN_PER_MINUTE, 10));
+
+    now = now.plusSeconds(600);
+
+    assertEquals(10, store.lease("k", TEN_PER_MINUTE, 20, 5));
+  }
+
+  @Test
+  void purge_shouldDeleteIdleBuckets() {
+    store.lease("old", TEN_PER_MINUTE, 1);
+    now = now.plus(Duration.ofHours(2));
+    store.lease("new", TEN_PER_MINUTE, 1);
+
+    assertEquals(1, store.purge());
+    assertEquals(
+        1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rate_limit_buckets", Integer.class));
+  }
+}
@@ -2,7 +2,9 @@ package com.bedoyarama.busnau.config;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.bedoyarama.busnau.entity.Role;
 import java.util.Collections;
+import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -24,6 +26,7 @@ class JwtUtilsTest {
         "test-secret-key-that-is-at-least-256-bits-long-for-hs256-algorithm");
     ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3600000);
     ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpirationMs", 86400000L);
+    jwtUtils.init();
   }
 
   private Authentication authFor(String username) {
@@ -63,6 +66,42 @@ class JwtUtilsTest {
     assertFalse(jwtUtils.validateJwtToken(token));
   }
 
+  @Test
+  void verifyJwtToken_shouldReturnClaims_forValidToken() {
+    String token = jwtUtils.generateJwtToken(authFor("frank"));
+    Optional<JwtClaims> claims = jwtUtils.verifyJwtToken(token);
+    assertTrue(claims.isPresent());
+    assertEquals("frank", claims.get().username());
+    assertTrue(claims.get().expiresAt().isAfter(claims.get().issuedAt()));
+    assertFalse(claims.get().hasPrincipal());
+  }
+
+  @Test
+  void verifyJwtToken_shouldCarryPrincipalClaims_forUserPrincipal() {
+    UserPrincipal principal = new UserPrincipal(42L, "grace", "password", Role.ADMIN, 3, 5);
+    String token =
+        jwtUtils.generateJwtToken(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+    JwtClaims claims = jwtUtils.verifyJwtToken(token).orElseThrow();
+    assertTrue(claims.hasPrincipal());
+    assertEquals(Long.valueOf(42L), claims.userId());
+    assertEquals(Role.ADMIN, claims.role());
+    assertEquals(Integer.valueOf(3), claims.roleVersion());
+    assertEquals(5, claims.tokenEpoch());
+  }
+
+  @Test
+  void verifyJwtToken_shouldReturnEmpty_forTokenSignedWithAnotherKey() {
+    JwtUtils other = new JwtUtils();
+    ReflectionTestUtils.setField(
+        other, "jwtSecret", "another-secret-key-that-is-at-least-256-bits-long-for-hs256");
+    ReflectionTestUtils.setField(other, "jwtExpirationMs", 3600000);
+    other.init();
+    String token = other.generateJwtToken(authFor("mallory"));
+    assertTrue(jwtUtils.verifyJwtToken(token).isEmpty());
+  }
+
   @Test
   void generateRefreshToken_shouldDifferFromAccessToken() {
     Authentication auth = authFor("eve");
@@ -71,6 +110,19 @@ class JwtUtilsTest {
     assertNotEquals(access, refresh, "access and refresh tokens must differ (different expiry)");
   }
 
+  @Test
+  void verifyJwtToken_shouldDistinguishAccessFromRefreshTokens() {
+    Authentication auth = authFor("heidi");
+
+    JwtClaims access = jwtUtils.verifyJwtToken(jwtUtils.generateJwtToken(auth)).orElseThrow();
+    JwtClaims refresh = jwtUtils.verifyJwtToken(jwtUtils.generateRefreshToken(auth)).orElseThrow();
+
+    assertTrue(access.isAccessToken());
+    assertFalse(access.isRefreshToken());
+    assertTrue(refresh.isRefreshToken());
+    assertFalse(refresh.isAccessToken());
+  }
+
   @Test
   void getJwtRefreshExpirationMs_shouldReturnConfiguredValue() {
     assertEquals(86400000L, jwtUtils.getJwtRefreshExpirationMs());
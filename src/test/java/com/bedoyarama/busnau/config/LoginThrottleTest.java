@@ -0,0 +1,43 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class LoginThrottleTest {
+
+  private final LoginThrottle throttle =
+      new LoginThrottle(1024, 2, 3, Duration.ofMinutes(1), Duration.ofMinutes(15));
+
+  @Test
+  void retryAfter_shouldLockUsernameAcrossAddresses() {
+    throttle.loginFailed("alice", "198.51.100.1");
+    throttle.loginFailed("alice", "198.51.100.2");
+
+    assertFalse(throttle.retryAfter("alice", "198.51.100.3").isZero());
+    assertTrue(throttle.retryAfter("bob", "198.51.100.3").isZero());
+  }
+
+  @Test
+  void retryAfter_shouldLockAddressGuessingManyUsernames() {
+    throttle.loginFailed("u1", "198.51.100.9");
+    throttle.loginFailed("u2", "198.51.100.9");
+    throttle.loginFailed("u3", "198.51.100.9");
+
+    assertFalse(throttle.retryAfter("u4", "198.51.100.9").isZero());
+    assertTrue(throttle.retryAfter("u4", "198.51.100.10").isZero());
+  }
+
+  @Test
+  void loginSucceeded_shouldClearUsernameButNotAddress() {
+    throttle.loginFailed("alice", "198.51.100.9");
+    throttle.loginFailed("bob", "198.51.100.9");
+    throttle.loginFailed("bob", "198.51.100.9");
+
+    throttle.loginSucceeded("bob");
+
+    assertFalse(throttle.retryAfter("bob", "198.51.100.9").isZero());
+    assertTrue(throttle.retryAfter("bob", "198.51.100.10").isZero());
+  }
+}
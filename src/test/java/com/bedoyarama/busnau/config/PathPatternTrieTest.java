@@ -0,0 +1,56 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PathPatternTrieTest {
+
+  @Test
+  void match_shouldPreferMoreSpecificPatterns() {
+    PathPatternTrie<String> trie = new PathPatternTrie<>();
+    trie.add("/api/**", List.of(), "api");
+    trie.add("/api/tasks/*", List.of(), "task");
+    trie.add("/api/tasks/user/{userId}", List.of(), "userTasks");
+
+    assertEquals("userTasks", trie.match("GET", "/api/tasks/user/7"));
+    assertEquals("task", trie.match("GET", "/api/tasks/7"));
+    assertEquals("api", trie.match("GET", "/api/tasks/7/extra"));
+    assertEquals("api", trie.match("GET", "/api"));
+    assertNull(trie.match("GET", "/actuator/health"));
+  }
+
+  @Test
+  void match_shouldPreferMethodSpecificValue() {
+    PathPatternTrie<String> trie = new PathPatternTrie<>();
+    trie.add("/api/auth/login", List.of(), "any");
+    trie.add("/api/auth/login", List.of("post"), "post");
+
+    assertEquals("post", trie.match("POST", "/api/auth/login"));
+    assertEquals("any", trie.match("GET", "/api/auth/login"));
+  }
+
+  @Test
+  void match_shouldIgnoreRepeatedAndTrailingSlashes() {
+    PathPatternTrie<String> trie = new PathPatternTrie<>();
+    trie.add("/api/users", List.of(), "users");
+
+    assertEquals("users", trie.match("GET", "/api//users/"));
+  }
+
+  @Test
+  void match_shouldBacktrackFromLiteralToWildcard() {
+    PathPatternTrie<String> trie = new PathPatternTrie<>();
+    trie.add("/api/tasks/export", List.of("GET"), "export");
+    trie.add("/api/tasks/*", List.of(), "task");
+
+    assertEquals("task", trie.match("DELETE", "/api/tasks/export"));
+  }
+
+  @Test
+  void add_shouldRejectDoubleWildcardInTheMiddle() {
+    PathPatternTrie<String> trie = new PathPatternTrie<>();
+    assertThrows(IllegalArgumentException.class, () -> trie.add("/api/**/x", List.of(), "x"));
+  }
+}
@@ -1,18 +1,29 @@
 package com.bedoyarama.busnau.config;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
+import com.bedoyarama.busnau.config.RateLimitPolicies.Limit;
+import com.bedoyarama.busnau.config.RateLimitPolicies.Policy;
+import com.bedoyarama.busnau.entity.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 class RateLimitConfigTest {
 
-  private final RateLimitConfig config = new RateLimitConfig();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final RateLimitConfig config = newConfig(List.of(), 1000);
 
   @Test
   void rateLimitFilter_shouldAllowRequestsWithinLimit() throws Exception {
@@ -48,6 +59,7 @@ class RateLimitConfigTest {
 
     assertEquals(429, blocked.getStatus());
     assertEquals("Too many requests", blocked.getContentAsString());
+    assertEquals(1.0, registry.get("rate-limit.rejected").counter().count());
   }
 
   @Test
@@ -72,4 +84,128 @@ class RateLimitConfigTest {
 
     assertEquals(429, blocked.getStatus());
   }
+
+  @Test
+  void rateLimitFilter_shouldKeepBucketCountBounded() throws Exception {
+    RateLimitConfig bounded = newConfig(List.of(), 100);
+    OncePerRequestFilter filter = bounded.rateLimitFilter();
+    FilterChain chain = mock(FilterChain.class);
+
+    for (int i = 0; i < 5000; i++) {
+      MockHttpServletRequest req = new MockHttpServletRequest();
+      req.setRemoteAddr("10.1." + (i / 256) + "." + (i % 256));
+      filter.doFilter(req, new MockHttpServletResponse(), chain);
+    }
+
+    assertTrue(bounded.bucketCount() <= 100, "buckets: " + bounded.bucketCount());
+  }
+
+  @Test
+  void rateLimitFilter_shouldApplyMatchingPolicyPerMethod() throws Exception {
+    Limit twoPerMinute = new Limit(2, Duration.ofMinutes(1));
+    RateLimitConfig tiered =
+        newConfig(
+            List.of(new Policy("/api/auth/login", List.of("POST"), twoPerMinute, null, null)),
+            1000);
+    OncePerRequestFilter filter = tiered.rateLimitFilter();
+    FilterChain chain = mock(FilterChain.class);
+
+    assertEquals(200, request(filter, chain, "POST", "/api/auth/login", null).getStatus());
+    assertEquals(200, request(filter, chain, "POST", "/api/auth/login", null).getStatus());
+    assertEquals(429, request(filter, chain, "POST", "/api/auth/login", null).getStatus());
+    // Other methods fall back to the default limit, in their own bucket
+    assertEquals(200, request(filter, chain, "GET", "/api/auth/login", null).getStatus());
+  }
+
+  @Test
+  void rateLimitFilter_shouldKeyAuthenticatedRequestsByUserWithRoleLimits() throws Exception {
+    RateLimitConfig tiered =
+        newConfig(
+            List.of(
+                new Policy(
+                    "/api/tasks/**",
+                    List.of(),
+                    new Limit(1, Duration.ofMinutes(1)),
+                    new Limit(2, Duration.ofMinutes(1)),
+                    new Limit(3, Duration.ofMinutes(1)))),
+            1000);
+    OncePerRequestFilter filter = tiered.rateLimitFilter();
+    FilterChain chain = mock(FilterChain.class);
+    UserPrincipal alice = new UserPrincipal(1L, "alice", null, Role.USER, 0, 0);
+    UserPrincipal root = new UserPrincipal(2L, "root", null, Role.ADMIN, 0, 0);
+
+    assertEquals(2, allowed(filter, chain, "/api/tasks/5", alice));
+    assertEquals(3, allowed(filter, chain, "/api/tasks", root));
+    assertEquals(1, allowed(filter, chain, "/api/tasks/user/1", null));
+  }
+
+  @Test
+  void rateLimitFilter_shouldIgnoreXForwardedForFromUntrustedPeer() throws Exception {
+    OncePerRequestFilter filter = config.rateLimitFilter();
+    FilterChain chain = mock(FilterChain.class);
+
+    // A client rotating spoofed header values still lands in its own bucket
+    for (int i = 0; i < 10; i++) {
+      MockHttpServletRequest req = new MockHttpServletRequest();
+      req.setRemoteAddr("198.51.100.7");
+      req.addHeader("X-Forwarded-For", "203.0.113." + i);
+      filter.doFilter(req, new MockHttpServletResponse(), chain);
+    }
+
+    MockHttpServletRequest req = new MockHttpServletRequest();
+    req.setRemoteAddr("198.51.100.7");
+    req.addHeader("X-Forwarded-For", "203.0.113.99");
+    MockHttpServletResponse blocked = new MockHttpServletResponse();
+    filter.doFilter(req, blocked, chain);
+
+    assertEquals(429, blocked.getStatus());
+  }
+
+  private RateLimitConfig newConfig(List<Policy> policies, long maximumSize) {
+    return new RateLimitConfig(
+        registry,
+        new RateLimitPolicies(policies),
+        new ClientAddressResolver(List.of("127.0.0.0/8", "10.0.0.0/8"), "X-Forwarded-For"),
+        Optional.empty(),
+        10,
+        Duration.ofMinutes(1),
+        maximumSize,
+        5,
+        Duration.ofSeconds(1));
+  }
+
+  private int allowed(
+      OncePerRequestFilter filter, FilterChain chain, String path, UserPrincipal principal)
+      throws Exception {
+    int allowed = 0;
+    for (int i = 0; i < 5; i++) {
+      if (request(filter, chain, "GET", path, principal).getStatus() == 200) {
+        allowed++;
+      }
+    }
+    return allowed;
+  }
+
+  private MockHttpServletResponse request(
+      OncePerRequestFilter filter,
+      FilterChain chain,
+      String method,
+      String path,
+      UserPrincipal principal)
+      throws Exception {
+    if (principal != null) {
+      SecurityContextHolder.getContext()
+          .setAuthentication(
+              new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+    try {
+      MockHttpServletRequest req = new MockHttpServletRequest(method, path);
+      req.setRemoteAddr("10.0.0.9");
+      MockHttpServletResponse res = new MockHttpServletResponse();
+      filter.doFilter(req, res, chain);
+      return res;
+    } finally {
+      SecurityContextHolder.clearContext();
+    }
+  }
 }
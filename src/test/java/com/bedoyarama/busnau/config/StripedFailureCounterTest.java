@@ -0,0 +1,62 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class StripedFailureCounterTest {
+
+  private static final long NOW = 1_700_000_000_000L;
+
+  private final StripedFailureCounter counter =
+      new StripedFailureCounter(1024, 3, Duration.ofSeconds(1), Duration.ofMinutes(1));
+
+  @Test
+  void retryAfter_shouldLockOnceThresholdIsReached() {
+    counter.recordFailure("alice", NOW);
+    counter.recordFailure("alice", NOW);
+    assertEquals(0, counter.retryAfterMillis("alice", NOW));
+
+    counter.recordFailure("alice", NOW);
+    assertEquals(1000, counter.retryAfterMillis("alice", NOW));
+    assertEquals(0, counter.retryAfterMillis("alice", NOW + 1000));
+    assertEquals(0, counter.retryAfterMillis("bob", NOW));
+  }
+
+  @Test
+  void retryAfter_shouldDoubleWithEveryFurtherFailureUpToMax() {
+    for (int i = 0; i < 5; i++) {
+      counter.recordFailure("alice", NOW);
+    }
+    assertEquals(4000, counter.retryAfterMillis("alice", NOW));
+
+    for (int i = 0; i < 20; i++) {
+      counter.recordFailure("alice", NOW);
+    }
+    assertEquals(60_000, counter.retryAfterMillis("alice", NOW));
+  }
+
+  @Test
+  void retryAfter_shouldForgetFailuresOlderThanMaxBackoff() {
+    for (int i = 0; i < 5; i++) {
+      counter.recordFailure("alice", NOW);
+    }
+
+    long later = NOW + Duration.ofMinutes(2).toMillis();
+    assertEquals(0, counter.retryAfterMillis("alice", later));
+    counter.recordFailure("alice", later);
+    assertEquals(0, counter.retryAfterMillis("alice", later));
+  }
+
+  @Test
+  void reset_shouldClearFailures() {
+    for (int i = 0; i < 5; i++) {
+      counter.recordFailure("alice", NOW);
+    }
+
+    counter.reset("alice");
+
+    assertEquals(0, counter.retryAfterMillis("alice", NOW));
+  }
+}
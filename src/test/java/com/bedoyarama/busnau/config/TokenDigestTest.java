@@ -0,0 +1,26 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TokenDigestTest {
+
+  @Test
+  void sha256_shouldReturnFixedWidthDigest() {
+    assertEquals(32, TokenDigest.sha256("a.b.c").length);
+    assertEquals(32, TokenDigest.sha256("x".repeat(1000)).length);
+  }
+
+  @Test
+  void sha256Hex_shouldMatchKnownVector() {
+    assertEquals(
+        "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+        TokenDigest.sha256Hex("abc"));
+  }
+
+  @Test
+  void sha256_shouldBeDeterministic() {
+    assertArrayEquals(TokenDigest.sha256("token"), TokenDigest.sha256("token"));
+  }
+}
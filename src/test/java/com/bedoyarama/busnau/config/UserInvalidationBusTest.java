@@ -0,0 +1,80 @@
+package com.bedoyarama.busnau.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.bedoyarama.busnau.entity.UserInvalidation;
+import com.bedoyarama.busnau.repository.UserInvalidationRepository;
+import com.bedoyarama.busnau.service.UserChangedEvent;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+class UserInvalidationBusTest {
+
+  private final UserInvalidationRepository repository = mock(UserInvalidationRepository.class);
+  private final ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+  private EmbeddedDatabase database;
+  private UserInvalidationBus bus;
+
+  @BeforeEach
+  void setUp() {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    bus =
+        new UserInvalidationBus(
+            database,
+            "",
+            "",
+            "",
+            new JdbcTemplate(database),
+            repository,
+            publisher,
+            true,
+            Duration.ofMillis(10),
+            Duration.ofSeconds(30),
+            Duration.ofHours(1));
+  }
+
+  @AfterEach
+  void tearDown() {
+    bus.stop();
+    database.shutdown();
+  }
+
+  @Test
+  void poll_shouldDispatchLateCommittedRowsAndSurviveFailingListeners() {
+    // Given: row 1 commits after row 2 has already been polled
+    UserInvalidation second = invalidation(2L, 20L);
+    UserInvalidation first = invalidation(1L, 10L);
+    when(repository.findByCreatedAtAfterOrderByIdAsc(any()))
+        .thenReturn(List.of(second), List.of(first, second));
+    doThrow(new IllegalStateException("listener failed"))
+        .when(publisher)
+        .publishEvent(new UserChangedEvent(20L, "user20", true));
+
+    // When
+    bus.start();
+
+    // Then: each row is dispatched exactly once, and the failure did not stop polling
+    verify(publisher, timeout(2000)).publishEvent(new UserChangedEvent(10L, "user10", true));
+    verify(repository, timeout(2000).atLeast(4)).findByCreatedAtAfterOrderByIdAsc(any());
+    verify(publisher, times(1)).publishEvent(new UserChangedEvent(20L, "user20", true));
+    verify(publisher, times(1)).publishEvent(new UserChangedEvent(10L, "user10", true));
+  }
+
+  private static UserInvalidation invalidation(Long id, Long userId) {
+    return new UserInvalidation(id, "other-node", userId, "user" + userId, Instant.now());
+  }
+}
@@ -0,0 +1,45 @@
+package com.bedoyarama.busnau.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+class VerifiedTokenCacheTest {
+
+  private final VerifiedTokenCache cache =
+      new VerifiedTokenCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+  private final UserDetails alice = new User("alice", "pw", Collections.emptyList());
+
+  @Test
+  void get_shouldReturnPrincipal_afterPut() {
+    cache.put("token-a", alice, Instant.now().plusSeconds(60));
+    assertSame(alice, cache.get("token-a"));
+    assertEquals(1, cache.stats().hitCount());
+  }
+
+  @Test
+  void get_shouldMiss_forUnknownToken() {
+    assertNull(cache.get("unknown"));
+    assertEquals(1, cache.stats().missCount());
+  }
+
+  @Test
+  void put_shouldIgnoreAlreadyExpiredToken() {
+    cache.put("token-b", alice, Instant.now().minusSeconds(1));
+    assertNull(cache.get("token-b"));
+  }
+
+  @Test
+  void invalidateAll_shouldDropEntries() {
+    cache.put("token-c", alice, Instant.now().plusSeconds(60));
+    cache.invalidateAll();
+    assertNull(cache.get("token-c"));
+  }
+}
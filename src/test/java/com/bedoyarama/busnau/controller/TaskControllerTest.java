@@ -0,0 +1,166 @@
+package com.bedoyarama.busnau.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import com.bedoyarama.busnau.config.UserPrincipal;
+import com.bedoyarama.busnau.entity.Role;
+import com.bedoyarama.busnau.entity.Task;
+import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.service.TaskExporter;
+import com.bedoyarama.busnau.service.TaskImporter;
+import com.bedoyarama.busnau.service.TaskService;
+import com.bedoyarama.busnau.service.UserService;
+import jakarta.validation.Validation;
+import java.util.List;
+import java.util.Optional;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+
+@ExtendWith(MockitoExtension.class)
+class TaskControllerTest {
+
+  private static final UserPrincipal ALICE = new UserPrincipal(1L, "alice", "pw", Role.USER, 0, 0);
+  private static final UserPrincipal ADMIN = new UserPrincipal(9L, "admin", "pw", Role.ADMIN, 0, 0);
+
+  @Mock private TaskService taskService;
+  @Mock private UserService userService;
+  @Mock private TaskExporter taskExporter;
+  @Mock private TaskImporter taskImporter;
+
+  private TaskController taskController;
+
+  @BeforeEach
+  void setUp() {
+    taskController =
+        new TaskController(
+            taskService,
+            userService,
+            taskExporter,
+            taskImporter,
+            Validation.byDefaultProvider()
+                .configure()
+                .messageInterpolator(new ParameterMessageInterpolator())
+                .buildValidatorFactory()
+                .getValidator(),
+            50,
+            200,
+            3);
+  }
+
+  @Test
+  void createTasks_shouldSaveAllTasksForCurrentUserInOneCall() {
+    // Given
+    User alice = user(1L);
+    when(userService.getReference(1L)).thenReturn(alice);
+    when(taskService.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    CreateTaskRequest ignoredOwner = request("Second");
+    ignoredOwner.setUserId(2L);
+
+    // When
+    ResponseEntity<List<Task>> response =
+        taskController.createTasks(List.of(request("First"), ignoredOwner), ALICE);
+
+    // Then
+    assertEquals(200, response.getStatusCode().value());
+    List<Task> saved = savedTasks();
+    assertEquals(List.of("First", "Second"), saved.stream().map(Task::getTitle).toList());
+    assertTrue(saved.stream().allMatch(task -> task.getUser() == alice));
+    verify(userService, never()).findById(any());
+  }
+
+  @Test
+  void createTasks_shouldRejectBatchLargerThanMaxSize() {
+    List<CreateTaskRequest> requests =
+        List.of(request("1"), request("2"), request("3"), request("4"));
+
+    ResponseEntity<List<Task>> response = taskController.createTasks(requests, ALICE);
+
+    assertEquals(400, response.getStatusCode().value());
+    verifyNoInteractions(taskService);
+  }
+
+  @Test
+  void createTasks_shouldRejectEmptyBatch() {
+    ResponseEntity<List<Task>> response = taskController.createTasks(List.of(), ALICE);
+
+    assertEquals(400, response.getStatusCode().value());
+    verifyNoInteractions(taskService);
+  }
+
+  @Test
+  void createTasks_shouldRejectWholeBatch_whenAnyTaskIsInvalid() {
+    ResponseEntity<List<Task>> response =
+        taskController.createTasks(List.of(request("Valid"), request(" ")), ALICE);
+
+    assertEquals(400, response.getStatusCode().value());
+    verifyNoInteractions(taskService);
+  }
+
+  @Test
+  void createTasks_shouldLetAdminAssignTasksToOtherUsers_lookingUpEachOwnerOnce() {
+    // Given
+    User admin = user(9L);
+    User bob = user(2L);
+    when(userService.getReference(9L)).thenReturn(admin);
+    when(userService.findById(2L)).thenReturn(Optional.of(bob));
+    when(taskService.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    CreateTaskRequest first = request("First");
+    first.setUserId(2L);
+    CreateTaskRequest second = request("Second");
+    second.setUserId(2L);
+
+    // When
+    ResponseEntity<List<Task>> response =
+        taskController.createTasks(List.of(first, second, request("Own")), ADMIN);
+
+    // Then
+    assertEquals(200, response.getStatusCode().value());
+    List<Task> saved = savedTasks();
+    assertSame(bob, saved.get(0).getUser());
+    assertSame(bob, saved.get(1).getUser());
+    assertSame(admin, saved.get(2).getUser());
+    verify(userService, times(1)).findById(2L);
+  }
+
+  @Test
+  void createTasks_shouldRejectAdminBatch_whenOwnerDoesNotExist() {
+    when(userService.getReference(9L)).thenReturn(user(9L));
+    when(userService.findById(42L)).thenReturn(Optional.empty());
+    CreateTaskRequest orphan = request("Orphan");
+    orphan.setUserId(42L);
+
+    ResponseEntity<List<Task>> response =
+        taskController.createTasks(List.of(request("Own"), orphan), ADMIN);
+
+    assertEquals(400, response.getStatusCode().value());
+    verifyNoInteractions(taskService);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Task> savedTasks() {
+    ArgumentCaptor<List<Task>> saved = ArgumentCaptor.forClass(List.class);
+    verify(taskService).saveAll(saved.capture());
+    return saved.getValue();
+  }
+
+  private static CreateTaskRequest request(String title) {
+    CreateTaskRequest request = new CreateTaskRequest();
+    request.setTitle(title);
+    return request;
+  }
+
+  private static User user(Long id) {
+    User user = new User();
+    user.setId(id);
+    return user;
+  }
+}
@@ -0,0 +1,64 @@
+package com.bedoyarama.busnau.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+/**
+ * Creates the schema Hibernate generates from the entities, as {@code ddl-auto} does in the test
+ * profile, so plain-JDBC code is exercised against that schema rather than hand-written DDL.
+ */
+final class HibernateSchema {
+
+  /** The JDBC batching settings from {@code application.properties}. */
+  static final Map<String, Object> BATCHING =
+      Map.of(
+          "hibernate.jdbc.batch_size", 50,
+          "hibernate.order_inserts", true,
+          "hibernate.order_updates", true);
+
+  private HibernateSchema() {}
+
+  static void create(DataSource dataSource) {
+    entityManagerFactory(dataSource, Map.of()).close();
+  }
+
+  /**
+   * Builds an entity manager factory over the application's entities and {@code extraEntities},
+   * creating their schema. The caller closes it.
+   */
+  static EntityManagerFactory entityManagerFactory(
+      DataSource dataSource, Map<String, Object> properties, Class<?>... extraEntities) {
+    LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+    factory.setDataSource(dataSource);
+    factory.setPackagesToScan("com.bedoyarama.busnau.entity");
+    factory.setPersistenceUnitPostProcessors(
+        unit -> {
+          for (Class<?> entity : extraEntities) {
+            unit.addManagedClassName(entity.getName());
+          }
+        });
+    factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+    Map<String, Object> jpaProperties = new HashMap<>(properties);
+    jpaProperties.put("hibernate.hbm2ddl.auto", "create");
+    // Spring Boot's default column naming: dueDate -> due_date
+    jpaProperties.put(
+        "hibernate.physical_naming_strategy",
+        "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy");
+    factory.setJpaPropertyMap(jpaProperties);
+    factory.afterPropertiesSet();
+    return factory.getObject();
+  }
+
+  static void insertUser(JdbcTemplate jdbcTemplate, long id) {
+    jdbcTemplate.update(
+        "INSERT INTO users (id, username, password, role, role_version, token_epoch)"
+            + " VALUES (?, ?, 'x', 'USER', 0, 0)",
+        id,
+        "user" + id);
+  }
+}
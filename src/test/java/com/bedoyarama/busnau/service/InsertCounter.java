@@ -0,0 +1,105 @@
+package com.bedoyarama.busnau.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+/**
+ * Wraps a data source and counts how inserts reach the database: as JDBC batches or one statement
+ * per row, plus how often a sequence is read.
+ */
+final class InsertCounter {
+
+  private final AtomicInteger batches = new AtomicInteger();
+  private final AtomicInteger batchedRows = new AtomicInteger();
+  private final AtomicInteger singleInserts = new AtomicInteger();
+  private final AtomicInteger sequenceCalls = new AtomicInteger();
+
+  DataSource wrap(DataSource dataSource) {
+    return proxy(
+        DataSource.class,
+        dataSource,
+        (target, method, args) -> {
+          Object result = method.invoke(target, args);
+          return result instanceof Connection connection ? wrap(connection) : result;
+        });
+  }
+
+  void reset() {
+    batches.set(0);
+    batchedRows.set(0);
+    singleInserts.set(0);
+    sequenceCalls.set(0);
+  }
+
+  int batches() {
+    return batches.get();
+  }
+
+  int batchedRows() {
+    return batchedRows.get();
+  }
+
+  int singleInserts() {
+    return singleInserts.get();
+  }
+
+  int sequenceCalls() {
+    return sequenceCalls.get();
+  }
+
+  private Connection wrap(Connection connection) {
+    return proxy(
+        Connection.class,
+        connection,
+        (target, method, args) -> {
+          Object result = method.invoke(target, args);
+          if (!method.getName().equals("prepareStatement")) {
+            return result;
+          }
+          String sql = ((String) args[0]).toLowerCase(Locale.ROOT);
+          if (sql.contains("next value for") || sql.contains("nextval")) {
+            sequenceCalls.incrementAndGet();
+          }
+          return sql.startsWith("insert") ? wrap((PreparedStatement) result) : result;
+        });
+  }
+
+  private PreparedStatement wrap(PreparedStatement statement) {
+    return proxy(
+        PreparedStatement.class,
+        statement,
+        (target, method, args) -> {
+          switch (method.getName()) {
+            case "addBatch" -> batchedRows.incrementAndGet();
+            case "executeBatch" -> batches.incrementAndGet();
+            case "executeUpdate", "execute" -> singleInserts.incrementAndGet();
+            default -> {}
+          }
+          return method.invoke(target, args);
+        });
+  }
+
+  private interface Handler<T> {
+    Object invoke(T target, Method method, Object[] args) throws Exception;
+  }
+
+  private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+    InvocationHandler invocationHandler =
+        (proxy, method, args) -> {
+          try {
+            return handler.invoke(target, method, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        };
+    return type.cast(
+        Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, invocationHandler));
+  }
+}
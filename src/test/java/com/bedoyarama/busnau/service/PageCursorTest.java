@@ -0,0 +1,33 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+class PageCursorTest {
+
+  @Test
+  void decode_shouldRoundTripEncodedCursor() {
+    PageCursor cursor = new PageCursor(LocalDate.of(2026, 5, 17), 42L);
+
+    assertEquals(cursor, PageCursor.decode(cursor.encode("task-due_date"), "task-due_date"));
+    assertEquals(
+        PageCursor.afterId(7L), PageCursor.decode(PageCursor.afterId(7L).encode("k"), "k"));
+  }
+
+  @Test
+  void decode_shouldTreatMissingCursorAsFirstPage() {
+    assertNull(PageCursor.decode(null, "k"));
+    assertNull(PageCursor.decode("", "k"));
+  }
+
+  @Test
+  void decode_shouldRejectForeignOrMalformedCursors() {
+    String userCursor = PageCursor.afterId(7L).encode("user-id");
+
+    assertThrows(InvalidCursorException.class, () -> PageCursor.decode(userCursor, "task-id"));
+    assertThrows(InvalidCursorException.class, () -> PageCursor.decode("not base64!", "k"));
+    assertThrows(InvalidCursorException.class, () -> PageCursor.decode("YTpiOmM", "a"));
+  }
+}
@@ -0,0 +1,150 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.bedoyarama.busnau.config.TokenDigest;
+import com.bedoyarama.busnau.entity.RefreshToken;
+import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.repository.RefreshTokenRepository;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+  private static final byte[] PRESENTED = TokenDigest.sha256("presented");
+  private static final byte[] NEXT = TokenDigest.sha256("next");
+
+  @Mock private RefreshTokenRepository refreshTokenRepository;
+
+  @Mock private RevokedTokenFilter revokedTokenFilter;
+
+  @Mock private RefreshTokenWriter refreshTokenWriter;
+
+  @Mock private Executor executor;
+
+  @InjectMocks private RefreshTokenService refreshTokenService;
+
+  @Test
+  void issue_shouldWriteFirstTokenOfNewFamilyThroughWriter() {
+    Instant expiry = Instant.now().plusSeconds(3600);
+
+    refreshTokenService.issue(3L, NEXT, expiry);
+
+    verify(refreshTokenWriter).write(eq(3L), eq(NEXT), any(UUID.class), eq(expiry));
+    verifyNoInteractions(refreshTokenRepository);
+  }
+
+  @Test
+  void rotate_shouldRevokePresentedTokenAndIssueSuccessorInSameFamily() {
+    RefreshToken current = token(false, Instant.now().plusSeconds(60));
+    when(refreshTokenRepository.findByTokenHashForUpdate(PRESENTED))
+        .thenReturn(Optional.of(current));
+
+    RefreshTokenService.Rotation rotation =
+        refreshTokenService.rotate(PRESENTED, user -> "next", Instant.now().plusSeconds(3600));
+
+    assertEquals(RefreshTokenService.Outcome.ROTATED, rotation.outcome());
+    assertSame(current.getUser(), rotation.user());
+    assertEquals("next", rotation.refreshToken());
+    assertTrue(current.isRevoked());
+    ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+    verify(refreshTokenRepository).save(saved.capture());
+    assertArrayEquals(NEXT, saved.getValue().getTokenHash());
+    assertEquals(current.getFamilyId(), saved.getValue().getFamilyId());
+    assertSame(current.getUser(), saved.getValue().getUser());
+    verify(revokedTokenFilter).add(PRESENTED);
+  }
+
+  @Test
+  void rotate_shouldRevokeFamilyWhenTokenWasAlreadyRotated() {
+    RefreshToken current = token(true, Instant.now().plusSeconds(60));
+    when(refreshTokenRepository.findByTokenHashForUpdate(PRESENTED))
+        .thenReturn(Optional.of(current));
+
+    Function<User, String> successor = mockSuccessor();
+
+    RefreshTokenService.Rotation rotation =
+        refreshTokenService.rotate(PRESENTED, successor, Instant.now().plusSeconds(3600));
+
+    assertEquals(RefreshTokenService.Outcome.REUSED, rotation.outcome());
+    assertNull(rotation.user());
+    verify(refreshTokenRepository).revokeFamily(current.getFamilyId());
+    verify(refreshTokenRepository, never()).save(any());
+    verifyNoInteractions(successor);
+  }
+
+  @Test
+  void rotate_shouldNotMintSuccessor_whenTokenIsUnknown() {
+    when(refreshTokenRepository.findByTokenHashForUpdate(PRESENTED)).thenReturn(Optional.empty());
+    Function<User, String> successor = mockSuccessor();
+
+    RefreshTokenService.Rotation rotation =
+        refreshTokenService.rotate(PRESENTED, successor, Instant.now().plusSeconds(3600));
+
+    assertEquals(RefreshTokenService.Outcome.NOT_FOUND, rotation.outcome());
+    verifyNoInteractions(successor);
+  }
+
+  @Test
+  void rotate_shouldRejectExpiredToken() {
+    RefreshToken current = token(false, Instant.now().minusSeconds(60));
+    when(refreshTokenRepository.findByTokenHashForUpdate(PRESENTED))
+        .thenReturn(Optional.of(current));
+
+    assertEquals(
+        RefreshTokenService.Outcome.EXPIRED,
+        refreshTokenService
+            .rotate(PRESENTED, user -> "next", Instant.now().plusSeconds(3600))
+            .outcome());
+    verify(refreshTokenRepository, never()).save(any());
+  }
+
+  @Test
+  void revokeFamilyIfReplayed_shouldSkipDatabaseWhenFilterMisses() {
+    when(revokedTokenFilter.mightContain(PRESENTED)).thenReturn(false);
+
+    assertFalse(refreshTokenService.revokeFamilyIfReplayed(PRESENTED));
+    verifyNoInteractions(refreshTokenRepository);
+  }
+
+  @Test
+  void revokeFamilyIfReplayed_shouldRejectFilterHitsAndRevokeFamilyInBackground() {
+    when(revokedTokenFilter.mightContain(PRESENTED)).thenReturn(true);
+
+    assertTrue(refreshTokenService.revokeFamilyIfReplayed(PRESENTED));
+    verifyNoInteractions(refreshTokenRepository);
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).execute(task.capture());
+    task.getValue().run();
+    verify(refreshTokenRepository).revokeFamilyOfRevokedToken(PRESENTED);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<User, String> mockSuccessor() {
+    return mock(Function.class);
+  }
+
+  private static RefreshToken token(boolean revoked, Instant expiryDate) {
+    RefreshToken token = new RefreshToken();
+    token.setTokenHash(PRESENTED);
+    token.setUser(new User());
+    token.setFamilyId(UUID.randomUUID());
+    token.setRevoked(revoked);
+    token.setExpiryDate(expiryDate);
+    return token;
+  }
+}
@@ -0,0 +1,73 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Timestamp;
+import java.time.Instant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+class RefreshTokenSweeperTest {
+
+  private EmbeddedDatabase database;
+  private JdbcTemplate jdbcTemplate;
+  private SimpleMeterRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    jdbcTemplate = new JdbcTemplate(database);
+    jdbcTemplate.execute(
+        "CREATE TABLE refresh_tokens (id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+            + " expiry_date TIMESTAMP NOT NULL, revoked BOOLEAN NOT NULL)");
+    registry = new SimpleMeterRegistry();
+  }
+
+  @AfterEach
+  void tearDown() {
+    database.shutdown();
+  }
+
+  @Test
+  void sweep_shouldDeleteExpiredRowsInBatchesAndKeepRevokedOnes() {
+    insert(5, Instant.now().minusSeconds(60), false);
+    insert(2, Instant.now().minusSeconds(60), true);
+    insert(2, Instant.now().plusSeconds(3600), true);
+    insert(3, Instant.now().plusSeconds(3600), false);
+
+    RefreshTokenSweeper sweeper = new RefreshTokenSweeper(jdbcTemplate, registry, true, 2, 100);
+
+    assertEquals(7, sweeper.sweep());
+    assertEquals(
+        5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_tokens", Integer.class));
+    assertEquals(7.0, registry.get("refresh_tokens.sweeper.purged").counter().count());
+  }
+
+  @Test
+  void sweep_shouldStopAfterMaxBatches() {
+    insert(10, Instant.now().minusSeconds(60), false);
+
+    RefreshTokenSweeper sweeper = new RefreshTokenSweeper(jdbcTemplate, registry, true, 3, 2);
+
+    assertEquals(6, sweeper.sweep());
+  }
+
+  private void insert(int count, Instant expiry, boolean revoked) {
+    for (int i = 0; i < count; i++) {
+      jdbcTemplate.update(
+          "INSERT INTO refresh_tokens (expiry_date, revoked) VALUES (?, ?)",
+          Timestamp.from(expiry),
+          revoked);
+    }
+  }
+}
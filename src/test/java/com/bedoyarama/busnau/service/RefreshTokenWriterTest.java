@@ -0,0 +1,105 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bedoyarama.busnau.config.TokenDigest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+class RefreshTokenWriterTest {
+
+  private EmbeddedDatabase database;
+  private JdbcTemplate jdbcTemplate;
+  private SimpleMeterRegistry registry;
+  private RefreshTokenWriter writer;
+
+  @BeforeEach
+  void setUp() {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    jdbcTemplate = new JdbcTemplate(database);
+    HibernateSchema.create(database);
+    HibernateSchema.insertUser(jdbcTemplate, 1L);
+    registry = new SimpleMeterRegistry();
+    writer =
+        new RefreshTokenWriter(
+            jdbcTemplate,
+            new SequenceIdAllocator(jdbcTemplate),
+            new DataSourceTransactionManager(database),
+            registry,
+            1000,
+            50,
+            Duration.ofMillis(20),
+            Duration.ofSeconds(5));
+    writer.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    writer.stop();
+    database.shutdown();
+  }
+
+  @Test
+  void write_shouldPersistConcurrentLoginsInFewerBatchesThanRows() {
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<CompletableFuture<Void>> writes = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        byte[] hash = TokenDigest.sha256("token-" + i);
+        writes.add(
+            CompletableFuture.runAsync(
+                () -> writer.write(1L, hash, UUID.randomUUID(), Instant.now().plusSeconds(60)),
+                executor));
+      }
+      writes.forEach(CompletableFuture::join);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(
+        200, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_tokens", Integer.class));
+    long batches = registry.get("refresh_tokens.writer.batch.size").summary().count();
+    assertTrue(batches < 200, "batches: " + batches);
+  }
+
+  @Test
+  void write_shouldPropagateFailureOfItsBatch() {
+    byte[] hash = TokenDigest.sha256("duplicate");
+    writer.write(1L, hash, UUID.randomUUID(), Instant.now().plusSeconds(60));
+
+    assertThrows(
+        DataAccessException.class,
+        () -> writer.write(1L, hash, UUID.randomUUID(), Instant.now().plusSeconds(60)));
+  }
+
+  @Test
+  void write_shouldWriteInline_whenNotRunning() {
+    writer.stop();
+
+    writer.write(1L, TokenDigest.sha256("inline"), UUID.randomUUID(), Instant.now());
+
+    assertEquals(
+        1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_tokens", Integer.class));
+    assertEquals(1.0, registry.get("refresh_tokens.writer.overflow").counter().count());
+  }
+}
@@ -0,0 +1,39 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bedoyarama.busnau.config.TokenDigest;
+import org.junit.jupiter.api.Test;
+
+class RevokedTokenFilterTest {
+
+  @Test
+  void mightContain_shouldReturnTrueForEveryAddedDigest() {
+    RevokedTokenFilter filter = new RevokedTokenFilter(null, 1000, 0.01);
+
+    for (int i = 0; i < 1000; i++) {
+      filter.add(TokenDigest.sha256("token-" + i));
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(filter.mightContain(TokenDigest.sha256("token-" + i)));
+    }
+  }
+
+  @Test
+  void mightContain_shouldRarelyMatchDigestsThatWereNotAdded() {
+    RevokedTokenFilter filter = new RevokedTokenFilter(null, 1000, 0.01);
+    for (int i = 0; i < 1000; i++) {
+      filter.add(TokenDigest.sha256("token-" + i));
+    }
+
+    int falsePositives = 0;
+    for (int i = 0; i < 10000; i++) {
+      if (filter.mightContain(TokenDigest.sha256("other-" + i))) {
+        falsePositives++;
+      }
+    }
+
+    assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+  }
+}
@@ -0,0 +1,92 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bedoyarama.busnau.entity.Task;
+import com.bedoyarama.busnau.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class SequenceIdAllocatorTest {
+
+  private EmbeddedDatabase database;
+  private EntityManagerFactory entityManagerFactory;
+  private JdbcTemplate jdbcTemplate;
+  private SequenceIdAllocator allocator;
+
+  @BeforeEach
+  void setUp() {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    entityManagerFactory = HibernateSchema.entityManagerFactory(database, Map.of());
+    jdbcTemplate = new JdbcTemplate(database);
+    // Where V12 leaves a fresh Postgres sequence: the next read returns 100
+    jdbcTemplate.execute("ALTER SEQUENCE tasks_id_seq RESTART WITH 100");
+    HibernateSchema.insertUser(jdbcTemplate, 1L);
+    allocator = new SequenceIdAllocator(jdbcTemplate);
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManagerFactory.close();
+    database.shutdown();
+  }
+
+  @Test
+  void next_shouldReadSequenceOncePerBlock() {
+    long[] ids = new long[120];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = allocator.next("tasks_id_seq", 1)[0];
+    }
+
+    // Blocks ending at 100, 150 and 200
+    assertArrayEquals(LongStream.rangeClosed(51, 170).toArray(), ids);
+    assertEquals(
+        Long.valueOf(250),
+        jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR tasks_id_seq", Long.class));
+  }
+
+  @Test
+  void next_shouldNeverHandOutIdsReservedByHibernate() {
+    EntityManager entityManager =
+        SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+    TransactionTemplate transactionTemplate =
+        new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+
+    for (int round = 0; round < 5; round++) {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            User owner = entityManager.getReference(User.class, 1L);
+            for (int i = 0; i < 70; i++) {
+              Task task = new Task();
+              task.setTitle("Hibernate");
+              task.setUser(owner);
+              entityManager.persist(task);
+            }
+          });
+      for (long id : allocator.next("tasks_id_seq", 70)) {
+        // Fails on the primary key if the id is already taken
+        jdbcTemplate.update(
+            "INSERT INTO tasks (id, title, completed, user_id) VALUES (?, 'JDBC', FALSE, 1)", id);
+      }
+    }
+
+    assertEquals(
+        700, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT id) FROM tasks", Integer.class));
+  }
+}
@@ -0,0 +1,86 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bedoyarama.busnau.entity.Task;
+import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.repository.TaskRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Checks that {@link TaskService#saveAll} reaches the database as JDBC batches. */
+class TaskBatchInsertTest {
+
+  private EmbeddedDatabase database;
+  private EntityManagerFactory entityManagerFactory;
+  private EntityManager entityManager;
+  private TransactionTemplate transactionTemplate;
+  private TaskService taskService;
+  private final InsertCounter counter = new InsertCounter();
+
+  @BeforeEach
+  void setUp() {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    entityManagerFactory =
+        HibernateSchema.entityManagerFactory(counter.wrap(database), HibernateSchema.BATCHING);
+    HibernateSchema.insertUser(new JdbcTemplate(database), 1L);
+    entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+    transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+    taskService =
+        new TaskService(
+            new JpaRepositoryFactory(entityManager).getRepository(TaskRepository.class));
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManagerFactory.close();
+    database.shutdown();
+  }
+
+  @Test
+  void saveAll_shouldSendInsertsAsJdbcBatches() {
+    counter.reset();
+
+    List<Task> saved =
+        transactionTemplate.execute(
+            status -> {
+              User owner = entityManager.getReference(User.class, 1L);
+              List<Task> tasks = new ArrayList<>();
+              for (int i = 0; i < 120; i++) {
+                Task task = new Task();
+                task.setTitle("Task " + i);
+                task.setUser(owner);
+                tasks.add(task);
+              }
+              return taskService.saveAll(tasks);
+            });
+
+    assertEquals(120, new HashSet<>(saved.stream().map(Task::getId).toList()).size());
+    assertEquals(
+        120,
+        new JdbcTemplate(database).queryForObject("SELECT COUNT(*) FROM tasks", Integer.class));
+    // 50 + 50 + 20 rows, and one sequence read per block of 50 ids (plus one for the first block)
+    assertEquals(3, counter.batches());
+    assertEquals(120, counter.batchedRows());
+    assertEquals(0, counter.singleInserts());
+    assertTrue(counter.sequenceCalls() <= 4, "sequence reads: " + counter.sequenceCalls());
+  }
+}
@@ -0,0 +1,92 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.bedoyarama.busnau.entity.Task;
+import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.repository.TaskRepository;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tools.jackson.databind.json.JsonMapper;
+
+@ExtendWith(MockitoExtension.class)
+class TaskExporterTest {
+
+  @Mock private TaskRepository taskRepository;
+
+  @Mock private EntityManager entityManager;
+
+  private TaskExporter exporter;
+
+  @BeforeEach
+  void setUp() {
+    exporter = new TaskExporter(taskRepository, entityManager, JsonMapper.builder().build());
+  }
+
+  @Test
+  void export_shouldWriteCsvAndDetachEachRow() throws Exception {
+    // Given
+    Task first = task(1L, "Plain", null);
+    Task second = task(2L, "Say \"hi\", then leave", LocalDate.of(2026, 3, 1));
+    when(taskRepository.streamByUserId(7L)).thenReturn(Stream.of(first, second));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // When
+    long rows = exporter.export(7L, TaskExporter.Format.CSV, out);
+
+    // Then
+    assertEquals(2, rows);
+    assertEquals(
+        TaskExporter.CSV_HEADER
+            + "\n1,Plain,,,false,7\n"
+            + "2,\"Say \"\"hi\"\", then leave\",,2026-03-01,false,7\n",
+        out.toString(StandardCharsets.UTF_8));
+    verify(entityManager).detach(first);
+    verify(entityManager).detach(second);
+  }
+
+  @Test
+  void export_shouldWriteOneJsonObjectPerLineForAdmin() throws Exception {
+    // Given
+    when(taskRepository.streamAll())
+        .thenReturn(Stream.of(task(1L, "a", null), task(2L, "b", null)));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // When
+    exporter.export(null, TaskExporter.Format.NDJSON, out);
+
+    // Then
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(2, lines.length);
+    assertTrue(lines[0].contains("\"id\":1") && lines[0].contains("\"title\":\"a\""));
+    assertTrue(lines[1].contains("\"userId\":7"));
+    verify(taskRepository, never()).streamByUserId(any());
+  }
+
+  @Test
+  void fromParam_shouldRejectUnknownFormat() {
+    assertEquals(TaskExporter.Format.CSV, TaskExporter.Format.fromParam("csv"));
+    assertThrows(
+        UnsupportedExportFormatException.class, () -> TaskExporter.Format.fromParam("xml"));
+  }
+
+  private static Task task(Long id, String title, LocalDate dueDate) {
+    User user = new User();
+    user.setId(7L);
+    Task task = new Task();
+    task.setId(id);
+    task.setTitle(title);
+    task.setDueDate(dueDate);
+    task.setUser(user);
+    return task;
+  }
+}
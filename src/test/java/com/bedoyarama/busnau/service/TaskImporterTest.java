@@ -0,0 +1,150 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import tools.jackson.databind.json.JsonMapper;
+
+class TaskImporterTest {
+
+  private EmbeddedDatabase database;
+  private JdbcTemplate jdbcTemplate;
+  private TaskImporter importer;
+
+  @BeforeEach
+  void setUp() {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    jdbcTemplate = new JdbcTemplate(database);
+    HibernateSchema.create(database);
+    HibernateSchema.insertUser(jdbcTemplate, 1L);
+    HibernateSchema.insertUser(jdbcTemplate, 2L);
+    Validator validator =
+        Validation.byDefaultProvider()
+            .configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory()
+            .getValidator();
+    importer =
+        new TaskImporter(
+            jdbcTemplate,
+            new SequenceIdAllocator(jdbcTemplate),
+            new DataSourceTransactionManager(database),
+            JsonMapper.builder().build(),
+            validator,
+            2,
+            200,
+            10);
+  }
+
+  @AfterEach
+  void tearDown() {
+    database.shutdown();
+  }
+
+  @Test
+  void importTasks_shouldLoadValidRowsAndReportInvalidOnes() throws Exception {
+    // Given
+    String ndjson =
+        """
+        {"title":"First","dueDate":"2026-03-01"}
+        {"title":"  "}
+        not json
+
+        {"title":"Second","description":"\\"quoted\\", with comma","completed":true}
+        {"title":"Third","userId":2}
+        """;
+
+    // When
+    TaskImporter.ImportResult result = importer.importTasks(stream(ndjson), 1L, false);
+
+    // Then
+    assertEquals(5, result.rows());
+    assertEquals(3, result.imported());
+    assertEquals(2, result.failed());
+    assertEquals(
+        List.of(2L, 3L), result.errors().stream().map(TaskImporter.RowError::line).toList());
+    assertEquals("Title is required", result.errors().getFirst().message());
+    List<Map<String, Object>> rows =
+        jdbcTemplate.queryForList(
+            "SELECT title, description, due_date, completed, user_id FROM tasks ORDER BY id");
+    assertEquals(3, rows.size());
+    assertEquals("\"quoted\", with comma", rows.get(1).get("DESCRIPTION"));
+    assertEquals(Boolean.TRUE, rows.get(1).get("COMPLETED"));
+    // userId is ignored unless owners may be overridden
+    assertEquals(1L, ((Number) rows.get(2).get("USER_ID")).longValue());
+  }
+
+  @Test
+  void importTasks_shouldAssignRowsToExistingUsersOnlyWhenOverrideAllowed() throws Exception {
+    // Given
+    String ndjson =
+        """
+        {"title":"Theirs","userId":2}
+        {"title":"Nobody's","userId":99}
+        """;
+
+    // When
+    TaskImporter.ImportResult result = importer.importTasks(stream(ndjson), 1L, true);
+
+    // Then
+    assertEquals(1, result.imported());
+    assertEquals("User not found: 99", result.errors().getFirst().message());
+    assertEquals(
+        Long.valueOf(2),
+        jdbcTemplate.queryForObject("SELECT user_id FROM tasks", Long.class));
+  }
+
+  @Test
+  void importTasks_shouldFailOnlyTheBatchRejectedByTheDatabase() throws Exception {
+    // Given: the owner does not exist, so every batch violates the foreign key
+    String ndjson = "{\"title\":\"a\"}\n{\"title\":\"b\"}\n{\"title\":\"c\"}\n";
+
+    // When
+    TaskImporter.ImportResult result = importer.importTasks(stream(ndjson), 42L, false);
+
+    // Then
+    assertEquals(3, result.rows());
+    assertEquals(0, result.imported());
+    assertEquals(3, result.failed());
+    assertEquals(3, result.errors().size());
+  }
+
+  @Test
+  void importTasks_shouldRejectOverlongRowsAndCapReportedErrors() throws Exception {
+    // Given
+    StringBuilder ndjson = new StringBuilder("{\"title\":\"" + "x".repeat(300) + "\"}\n");
+    for (int i = 0; i < 20; i++) {
+      ndjson.append("{}\n");
+    }
+
+    // When
+    TaskImporter.ImportResult result = importer.importTasks(stream(ndjson.toString()), 1L, false);
+
+    // Then
+    assertEquals(21, result.failed());
+    assertEquals(10, result.errors().size());
+    assertEquals("Row exceeds 200 characters", result.errors().getFirst().message());
+  }
+
+  private static ByteArrayInputStream stream(String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,145 @@
+package com.bedoyarama.busnau.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bedoyarama.busnau.entity.Task;
+import com.bedoyarama.busnau.entity.User;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Persists tasks through JPA with the application's batching settings, once with the {@code Task}
+ * entity (pooled sequence ids) and once with {@link IdentityTask}, the same columns under the
+ * IDENTITY mapping {@code Task} used before. Rows go in transactions of 1000, the default {@code
+ * tasks.batch.max-size}, as {@code POST /api/tasks/batch} does. Run with {@code ./gradlew test
+ * -Pbenchmark --tests '*TaskInsertBenchmarkTest'}; an in-memory database has no network round
+ * trips, so the gap against a remote Postgres is considerably larger.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TaskInsertBenchmarkTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(TaskInsertBenchmarkTest.class);
+
+  private static final int ROWS = 50_000;
+  private static final int WARMUP_ROWS = 5_000;
+  private static final int ROWS_PER_TRANSACTION = 1_000;
+
+  /** {@code Task} as it was mapped before pooled sequences. */
+  @Entity
+  @Table(name = "identity_tasks")
+  static class IdentityTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    String title;
+
+    Boolean completed = false;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    User user;
+  }
+
+  private EmbeddedDatabase database;
+  private EntityManagerFactory entityManagerFactory;
+  private EntityManager entityManager;
+  private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  void setUp() {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    entityManagerFactory =
+        HibernateSchema.entityManagerFactory(
+            database, HibernateSchema.BATCHING, IdentityTask.class);
+    HibernateSchema.insertUser(new JdbcTemplate(database), 1L);
+    entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+    transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManagerFactory.close();
+    database.shutdown();
+  }
+
+  @Test
+  void persistTasksWithIdentityAndPooledSequenceIds() {
+    BiFunction<Integer, User, Object> identityTask =
+        (i, owner) -> {
+          IdentityTask task = new IdentityTask();
+          task.title = "Task " + i;
+          task.user = owner;
+          return task;
+        };
+    BiFunction<Integer, User, Object> sequenceTask =
+        (i, owner) -> {
+          Task task = new Task();
+          task.setTitle("Task " + i);
+          task.setUser(owner);
+          return task;
+        };
+    persist(identityTask, WARMUP_ROWS);
+    persist(sequenceTask, WARMUP_ROWS);
+
+    double identity = ROWS / persist(identityTask, ROWS);
+    double sequence = ROWS / persist(sequenceTask, ROWS);
+
+    logger.info(
+        "Tasks persisted/s in transactions of {}: IDENTITY {}, pooled sequence {} ({}x)",
+        ROWS_PER_TRANSACTION,
+        Math.round(identity),
+        Math.round(sequence),
+        String.format("%.1f", sequence / identity));
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+    assertEquals(
+        ROWS + WARMUP_ROWS,
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM identity_tasks", Integer.class));
+    assertEquals(
+        ROWS + WARMUP_ROWS,
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tasks", Integer.class));
+  }
+
+  // Returns the elapsed seconds
+  private double persist(BiFunction<Integer, User, Object> newTask, int rows) {
+    long start = System.nanoTime();
+    for (int from = 0; from < rows; from += ROWS_PER_TRANSACTION) {
+      int first = from;
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            User owner = entityManager.getReference(User.class, 1L);
+            for (int i = first; i < Math.min(first + ROWS_PER_TRANSACTION, rows); i++) {
+              entityManager.persist(newTask.apply(i, owner));
+            }
+          });
+    }
+    return (System.nanoTime() - start) / 1e9;
+  }
+}
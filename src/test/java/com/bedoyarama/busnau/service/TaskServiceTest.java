@@ -7,11 +7,13 @@ import com.bedoyarama.busnau.entity.Task;
 import com.bedoyarama.busnau.repository.TaskRepository;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 @ExtendWith(MockitoExtension.class)
 class TaskServiceTest {
@@ -38,4 +40,121 @@ class TaskServiceTest {
     verify(taskRepository).findByUser_IdAndDueDateBetween(userId, start, end);
     assertEquals(expectedTasks, tasks);
   }
+
+  @Test
+  void findPage_byId_shouldReturnCursorWhenMoreRowsExist() {
+    // Given
+    when(taskRepository.findByUser_IdAndIdGreaterThanOrderByIdAsc(1L, 0L, Limit.of(3)))
+        .thenReturn(List.of(task(10L, null), task(11L, null), task(12L, null)));
+    when(taskRepository.findByUser_IdAndIdGreaterThanOrderByIdAsc(1L, 11L, Limit.of(3)))
+        .thenReturn(List.of(task(12L, null)));
+
+    // When
+    CursorPage<Task> first = taskService.findPage(1L, TaskOrder.ID, null, 2);
+    CursorPage<Task> second = taskService.findPage(1L, TaskOrder.ID, first.nextCursor(), 2);
+
+    // Then
+    assertEquals(List.of(10L, 11L), first.items().stream().map(Task::getId).toList());
+    assertNotNull(first.nextCursor());
+    assertEquals(List.of(12L), second.items().stream().map(Task::getId).toList());
+    assertNull(second.nextCursor());
+  }
+
+  @Test
+  void findPage_byDueDate_shouldContinueWithUndatedTasks() {
+    // Given
+    LocalDate due = LocalDate.of(2026, 3, 1);
+    when(taskRepository.findByDueDateNotNullOrderByDueDateAscIdAsc(Limit.of(3)))
+        .thenReturn(List.of(task(5L, due)));
+    when(taskRepository.findByDueDateIsNullAndIdGreaterThanOrderByIdAsc(0L, Limit.of(2)))
+        .thenReturn(List.of(task(2L, null), task(7L, null)));
+    when(taskRepository.findByDueDateIsNullAndIdGreaterThanOrderByIdAsc(2L, Limit.of(3)))
+        .thenReturn(List.of(task(7L, null)));
+
+    // When
+    CursorPage<Task> first = taskService.findPage(null, TaskOrder.DUE_DATE, null, 2);
+    CursorPage<Task> second =
+        taskService.findPage(null, TaskOrder.DUE_DATE, first.nextCursor(), 2);
+
+    // Then
+    assertEquals(List.of(5L, 2L), first.items().stream().map(Task::getId).toList());
+    assertEquals(List.of(7L), second.items().stream().map(Task::getId).toList());
+    assertNull(second.nextCursor());
+    verify(taskRepository, never()).pageByDueDateAfter(any(), any(), any());
+  }
+
+  @Test
+  void findPage_shouldRejectCursorOfAnotherOrder() {
+    // Given
+    when(taskRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2)))
+        .thenReturn(List.of(task(1L, null), task(2L, null)));
+    String cursor = taskService.findPage(null, TaskOrder.ID, null, 1).nextCursor();
+
+    // When / Then
+    assertThrows(
+        InvalidCursorException.class,
+        () -> taskService.findPage(null, TaskOrder.DUE_DATE, cursor, 1));
+  }
+
+  @Test
+  void completeByIds_shouldRunOneUpdateScopedToUser() {
+    // Given
+    List<Long> ids = List.of(1L, 2L, 3L);
+    when(taskRepository.completeByIds(5L, ids)).thenReturn(2);
+
+    // When
+    int affected = taskService.completeByIds(5L, ids);
+
+    // Then
+    assertEquals(2, affected);
+    verify(taskRepository).completeByIds(5L, ids);
+    verifyNoMoreInteractions(taskRepository);
+  }
+
+  @Test
+  void deleteCompletedDueBefore_shouldRunOneDeleteScopedToUser() {
+    // Given
+    LocalDate before = LocalDate.of(2026, 1, 1);
+    when(taskRepository.deleteCompletedDueBefore(5L, before)).thenReturn(7);
+
+    // When
+    int affected = taskService.deleteCompletedDueBefore(5L, before);
+
+    // Then
+    assertEquals(7, affected);
+    verifyNoMoreInteractions(taskRepository);
+  }
+
+  @Test
+  void findById_withOwner_shouldFoldOwnershipIntoQuery() {
+    // Given
+    Task owned = task(3L, null);
+    when(taskRepository.findByIdAndUser_Id(3L, 5L)).thenReturn(Optional.of(owned));
+
+    // When
+    Optional<Task> task = taskService.findById(3L, 5L);
+
+    // Then
+    assertEquals(Optional.of(owned), task);
+    verify(taskRepository, never()).findById(any());
+  }
+
+  @Test
+  void delete_shouldUseSingleStatementForOwnerAndAdmin() {
+    // Given
+    when(taskRepository.deleteOneOwnedBy(3L, 5L)).thenReturn(0);
+    when(taskRepository.deleteOne(3L)).thenReturn(1);
+
+    // When / Then
+    assertFalse(taskService.delete(3L, 5L));
+    assertTrue(taskService.delete(3L, null));
+    verify(taskRepository, never()).deleteById(any());
+  }
+
+  private static Task task(Long id, LocalDate dueDate) {
+    Task task = new Task();
+    task.setId(id);
+    task.setDueDate(dueDate);
+    return task;
+  }
 }
@@ -6,12 +6,20 @@ import static org.mockito.Mockito.*;
 
 import com.bedoyarama.busnau.entity.Role;
 import com.bedoyarama.busnau.entity.User;
+import com.bedoyarama.busnau.repository.RefreshTokenRepository;
 import com.bedoyarama.busnau.repository.UserRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @ExtendWith(MockitoExtension.class)
@@ -19,8 +27,12 @@ class UserServiceTest {
 
   @Mock private UserRepository userRepository;
 
+  @Mock private RefreshTokenRepository refreshTokenRepository;
+
   @Mock private PasswordEncoder passwordEncoder;
 
+  @Mock private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks private UserService userService;
 
   @Test
@@ -41,6 +53,7 @@ class UserServiceTest {
     verify(passwordEncoder).encode("plainpassword");
     verify(userRepository).save(user);
     assertEquals("encodedpassword", savedUser.getPassword());
+    verify(eventPublisher).publishEvent(new UserChangedEvent(null, "testuser"));
   }
 
   @Test
@@ -48,7 +61,7 @@ class UserServiceTest {
     // Given
     User user = new User();
     user.setUsername("testuser");
-    user.setPassword("$2a$10$encodedpassword");
+    user.setPassword("$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy");
     user.setRole(Role.USER);
 
     when(userRepository.save(any(User.class))).thenReturn(user);
@@ -60,4 +73,193 @@ class UserServiceTest {
     verify(passwordEncoder, never()).encode(anyString());
     verify(userRepository).save(user);
   }
+
+  @Test
+  void save_shouldNotEncodePasswordIfDelegatingFormat() {
+    // Given
+    User user = new User();
+    user.setUsername("testuser");
+    user.setPassword("{bcrypt}$2a$12$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy");
+    user.setRole(Role.USER);
+
+    when(userRepository.save(any(User.class))).thenReturn(user);
+
+    // When
+    userService.save(user);
+
+    // Then
+    verify(passwordEncoder, never()).encode(anyString());
+  }
+
+  @Test
+  void save_shouldEncodePasswordThatOnlyLooksLikeBcryptPrefix() {
+    // Given
+    User user = new User();
+    user.setUsername("testuser");
+    user.setPassword("$2a$10$tooshort");
+    user.setRole(Role.USER);
+
+    when(passwordEncoder.encode("$2a$10$tooshort")).thenReturn("encodedpassword");
+    when(userRepository.save(any(User.class))).thenReturn(user);
+
+    // When
+    userService.save(user);
+
+    // Then
+    assertEquals("encodedpassword", user.getPassword());
+  }
+
+  @Test
+  void save_shouldEncodePasswordWithUnregisteredEncoderPrefix() {
+    // Given
+    User user = new User();
+    user.setUsername("testuser");
+    user.setPassword("{hello}world123");
+    user.setRole(Role.USER);
+
+    when(passwordEncoder.encode("{hello}world123")).thenReturn("encodedpassword");
+    when(userRepository.save(any(User.class))).thenReturn(user);
+
+    // When
+    userService.save(user);
+
+    // Then
+    assertEquals("encodedpassword", user.getPassword());
+  }
+
+  @Test
+  void create_shouldEncodePasswordEvenIfItLooksEncoded() {
+    // Given
+    String hashLike = "{bcrypt}$2a$12$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy";
+    User user = new User();
+    user.setUsername("testuser");
+    user.setPassword(hashLike);
+    user.setRole(Role.USER);
+
+    when(passwordEncoder.encode(hashLike)).thenReturn("encodedpassword");
+    when(userRepository.save(any(User.class))).thenReturn(user);
+
+    // When
+    userService.create(user);
+
+    // Then
+    assertEquals("encodedpassword", user.getPassword());
+  }
+
+  @Test
+  void create_shouldStoreBraceDelimitedPasswordHashedAndStillMatchIt() {
+    // Given: the encoder setup used by SecurityConfig, at a cheap cost
+    DelegatingPasswordEncoder encoder =
+        new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", new BCryptPasswordEncoder(4)));
+    encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+    UserService service =
+        new UserService(userRepository, refreshTokenRepository, encoder, eventPublisher);
+    User user = new User();
+    user.setUsername("testuser");
+    user.setPassword("{hello}world123");
+    user.setRole(Role.USER);
+    when(userRepository.save(any(User.class))).thenReturn(user);
+
+    // When
+    service.create(user);
+
+    // Then
+    assertTrue(user.getPassword().startsWith("{bcrypt}$2"));
+    assertTrue(encoder.matches("{hello}world123", user.getPassword()));
+  }
+
+  @Test
+  void updatePassword_shouldPublishEvent_whenRowUpdated() {
+    // Given
+    when(userRepository.updatePassword(3L, "{bcrypt}newhash")).thenReturn(1);
+
+    // When
+    userService.updatePassword(3L, "carol", "{bcrypt}newhash");
+
+    // Then
+    verify(eventPublisher).publishEvent(new UserChangedEvent(3L, "carol"));
+  }
+
+  @Test
+  void save_shouldBumpRoleVersion_whenRoleChanges() {
+    // Given
+    User user = new User();
+    user.setId(5L);
+    user.setUsername("testuser");
+    user.setPassword("plainpassword");
+    user.setRole(Role.ADMIN);
+    user.setRoleVersion(2);
+
+    when(passwordEncoder.encode("plainpassword")).thenReturn("encodedpassword");
+    when(userRepository.findRoleById(5L)).thenReturn(Optional.of(Role.USER));
+    when(userRepository.save(any(User.class))).thenReturn(user);
+
+    // When
+    userService.save(user);
+
+    // Then
+    assertEquals(3, user.getRoleVersion());
+  }
+
+  @Test
+  void deleteById_shouldPublishUserChangedEvent() {
+    // Given
+    User user = new User();
+    user.setId(7L);
+    user.setUsername("gone");
+    when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+    // When
+    userService.deleteById(7L);
+
+    // Then
+    verify(userRepository).delete(user);
+    verify(eventPublisher).publishEvent(new UserChangedEvent(7L, "gone"));
+  }
+
+  @Test
+  void revokeSessions_shouldBumpEpochAndDeleteRefreshTokens() {
+    // Given
+    User reference = new User();
+    when(userRepository.incrementTokenEpoch(7L)).thenReturn(1);
+    when(userRepository.getReferenceById(7L)).thenReturn(reference);
+
+    // When
+    boolean revoked = userService.revokeSessions(7L, "alice");
+
+    // Then
+    assertTrue(revoked);
+    verify(refreshTokenRepository).deleteByUser(reference);
+    verify(eventPublisher).publishEvent(new UserChangedEvent(7L, "alice"));
+  }
+
+  @Test
+  void revokeSessions_shouldReturnFalse_whenUserDoesNotExist() {
+    when(userRepository.incrementTokenEpoch(7L)).thenReturn(0);
+
+    assertFalse(userService.revokeSessions(7L, null));
+    verifyNoInteractions(refreshTokenRepository, eventPublisher);
+  }
+
+  @Test
+  void findPage_shouldResumeAfterLastUserOfPreviousPage() {
+    // Given
+    User first = new User();
+    first.setId(3L);
+    User second = new User();
+    second.setId(8L);
+    when(userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2)))
+        .thenReturn(List.of(first, second));
+    when(userRepository.findByIdGreaterThanOrderByIdAsc(3L, Limit.of(2)))
+        .thenReturn(List.of(second));
+
+    // When
+    CursorPage<User> page = userService.findPage(null, 1);
+    CursorPage<User> next = userService.findPage(page.nextCursor(), 1);
+
+    // Then
+    assertEquals(List.of(first), page.items());
+    assertEquals(List.of(second), next.items());
+    assertNull(next.nextCursor());
+  }
 }